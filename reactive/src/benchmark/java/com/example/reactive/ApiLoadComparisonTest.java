@@ -0,0 +1,166 @@
+package com.example.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.demo.TechhubApplication;
+import com.example.reactive.booking.BookingRequest;
+import com.example.reactive.entities.Doctor;
+import com.example.reactive.entities.Patient;
+import com.example.reactive.entities.Room;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Runs the servlet application and the reactive one side by side, each on its own
+ * in-memory H2 database, and fires the same read mix at both with many requests in
+ * flight. Prints latency percentiles and throughput, it asserts only that every
+ * request was answered.
+ *
+ * mvn -Pbenchmark test, after mvn install of the parent project.
+ */
+@Tag("benchmark")
+class ApiLoadComparisonTest {
+
+    private static final int DOCTORS = 200;
+    private static final int APPOINTMENTS = 50;
+    private static final int CONCURRENCY = 512;
+    private static final int WARMUP_REQUESTS = 5_000;
+    private static final int REQUESTS = 50_000;
+
+    private static ConfigurableApplicationContext servlet;
+    private static ConfigurableApplicationContext reactive;
+    private static ConnectionProvider connections;
+
+    @BeforeAll
+    static void startApplications(){
+        servlet = new SpringApplicationBuilder(TechhubApplication.class)
+            .web(WebApplicationType.SERVLET)
+            .run("--server.port=0",
+                 "--server.tomcat.threads.max=200",
+                 "--spring.datasource.url=jdbc:h2:mem:load-servlet;DB_CLOSE_DELAY=-1",
+                 "--spring.datasource.driver-class-name=org.h2.Driver",
+                 "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                 "--spring.jpa.hibernate.ddl-auto=create-drop",
+                 "--spring.sql.init.mode=never",
+                 "--spring.autoconfigure.exclude="
+                     + "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration,"
+                     + "org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration,"
+                     + "org.springframework.boot.autoconfigure.data.r2dbc.R2dbcRepositoriesAutoConfiguration,"
+                     + "org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration");
+        reactive = new SpringApplicationBuilder(ReactiveApplication.class, NettyServerConfiguration.class)
+            .profiles("test")
+            .run("--server.port=0",
+                 "--spring.r2dbc.url=r2dbc:h2:mem:///load-reactive;DB_CLOSE_DELAY=-1");
+        connections = ConnectionProvider.builder("load")
+            .maxConnections(CONCURRENCY)
+            .pendingAcquireMaxCount(-1)
+            .build();
+    }
+
+    @AfterAll
+    static void stopApplications(){
+        connections.dispose();
+        reactive.close();
+        servlet.close();
+    }
+
+    private static WebClient client(ConfigurableApplicationContext context){
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return WebClient.builder()
+            .baseUrl("http://localhost:" + port + "/api")
+            .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+            .build();
+    }
+
+    private static long[] seed(WebClient client){
+        client.post().uri("/room").bodyValue(new Room("Dermatology")).retrieve().toBodilessEntity().block();
+        Patient patient = client.post().uri("/patient")
+            .bodyValue(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"))
+            .retrieve().bodyToMono(Patient.class).block();
+        List<Doctor> doctors = Flux.range(0, DOCTORS)
+            .concatMap(i -> client.post().uri("/doctor")
+                .bodyValue(new Doctor("Perla", "Amalia" + i, 24, "p.amalia" + i + "@hospital.accwe"))
+                .retrieve().bodyToMono(Doctor.class))
+            .collectList().block();
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+        Flux.range(0, APPOINTMENTS)
+            .concatMap(i -> client.post().uri("/appointments")
+                .bodyValue(new BookingRequest(patient.getId(), doctors.get(i).getId(), "Dermatology",
+                                              nine.plusHours(i), nine.plusHours(i + 1)))
+                .retrieve().toBodilessEntity())
+            .blockLast();
+        return doctors.stream().mapToLong(Doctor::getId).toArray();
+    }
+
+    /** Nine in ten requests read one doctor, the rest read the appointment list. */
+    private static long[] run(WebClient client, long[] doctorIds, int requests, AtomicInteger failures){
+        long[] latencies = new long[requests];
+        Flux.range(0, requests)
+            .flatMap(i -> {
+                String uri = ThreadLocalRandom.current().nextInt(10) == 0
+                    ? "/appointments"
+                    : "/doctors/" + doctorIds[ThreadLocalRandom.current().nextInt(doctorIds.length)];
+                return Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return client.get().uri(uri).retrieve().toBodilessEntity()
+                        .doOnSuccess(response -> latencies[i] = System.nanoTime() - start);
+                })
+                .onErrorResume(e -> {
+                    failures.incrementAndGet();
+                    return Mono.empty();
+                });
+            }, CONCURRENCY)
+            .blockLast(Duration.ofMinutes(10));
+        return latencies;
+    }
+
+    private static void measure(String name, ConfigurableApplicationContext context){
+        WebClient client = client(context);
+        long[] doctorIds = seed(client);
+        AtomicInteger failures = new AtomicInteger();
+        run(client, doctorIds, WARMUP_REQUESTS, failures);
+
+        long start = System.nanoTime();
+        long[] latencies = run(client, doctorIds, REQUESTS, failures);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-8s %6d req in-flight=%d  %8.0f req/s  p50=%6.2f ms  p90=%6.2f ms  p99=%7.2f ms  max=%7.2f ms%n",
+            name, REQUESTS, CONCURRENCY, REQUESTS / seconds,
+            millis(latencies, 0.50), millis(latencies, 0.90), millis(latencies, 0.99),
+            latencies[latencies.length - 1] / 1e6);
+        assertThat(failures.get()).isZero();
+    }
+
+    private static double millis(long[] sorted, double percentile){
+        return sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1e6;
+    }
+
+    @Test
+    void compareLatencyUnderConcurrentLoad(){
+        measure("servlet", servlet);
+        measure("reactive", reactive);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.reactive.booking;
+
+import java.time.LocalDateTime;
+
+import com.example.reactive.entities.Doctor;
+import com.example.reactive.entities.Patient;
+import com.example.reactive.entities.Room;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Body of the servlet API's POST /api/appointment: the participants in full. A doctor
+ * or patient without an id is new, one with an id must exist, and the room is created
+ * when missing.
+ */
+public class AppointmentRequest {
+
+    private Patient patient;
+    private Doctor doctor;
+    private Room room;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private LocalDateTime finishesAt;
+
+    public AppointmentRequest(){
+        super();
+    }
+
+    public AppointmentRequest(Patient patient, Doctor doctor, Room room, LocalDateTime startsAt, LocalDateTime finishesAt){
+        this.patient = patient;
+        this.doctor = doctor;
+        this.room = room;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    public Patient getPatient(){
+        return this.patient;
+    }
+    public void setPatient(Patient patient){
+        this.patient = patient;
+    }
+
+    public Doctor getDoctor(){
+        return this.doctor;
+    }
+    public void setDoctor(Doctor doctor){
+        this.doctor = doctor;
+    }
+
+    public Room getRoom(){
+        return this.room;
+    }
+    public void setRoom(Room room){
+        this.room = room;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+    public void setStartsAt(LocalDateTime startsAt){
+        this.startsAt = startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+    public void setFinishesAt(LocalDateTime finishesAt){
+        this.finishesAt = finishesAt;
+    }
+}
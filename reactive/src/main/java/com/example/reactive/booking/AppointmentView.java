@@ -0,0 +1,91 @@
+package com.example.reactive.booking;
+
+import java.time.LocalDateTime;
+
+import com.example.reactive.entities.Doctor;
+import com.example.reactive.entities.Patient;
+import com.example.reactive.entities.Room;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import io.r2dbc.spi.Row;
+
+/** Appointment with its participants nested, serialized like the servlet API does. */
+public class AppointmentView {
+
+    static final String SELECT = "select a.id, a.starts_at, a.finishes_at, " +
+        "p.id as p_id, p.version as p_version, p.first_name as p_first_name, p.last_name as p_last_name, p.age as p_age, p.email as p_email, " +
+        "d.id as d_id, d.version as d_version, d.first_name as d_first_name, d.last_name as d_last_name, d.age as d_age, d.email as d_email, " +
+        "r.room_name as r_room_name, r.version as r_version " +
+        "from appointment a left join patient p on p.id = a.patient_id left join doctors d on d.id = a.doctor_id " +
+        "left join room r on r.room_name = a.room_id ";
+
+    private final long id;
+    private final Patient patient;
+    private final Doctor doctor;
+    private final Room room;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime finishesAt;
+
+    private AppointmentView(long id, Patient patient, Doctor doctor, Room room,
+                            LocalDateTime startsAt, LocalDateTime finishesAt){
+        this.id = id;
+        this.patient = patient;
+        this.doctor = doctor;
+        this.room = room;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    /** Maps a row of {@link #SELECT}. */
+    static AppointmentView of(Row row){
+        Patient patient = null;
+        if (row.get("p_id") != null){
+            patient = new Patient(row.get("p_first_name", String.class), row.get("p_last_name", String.class),
+                row.get("p_age", Integer.class), row.get("p_email", String.class));
+            patient.setId(row.get("p_id", Long.class));
+            patient.setVersion(row.get("p_version", Long.class));
+        }
+        Doctor doctor = null;
+        if (row.get("d_id") != null){
+            doctor = new Doctor(row.get("d_first_name", String.class), row.get("d_last_name", String.class),
+                row.get("d_age", Integer.class), row.get("d_email", String.class));
+            doctor.setId(row.get("d_id", Long.class));
+            doctor.setVersion(row.get("d_version", Long.class));
+        }
+        Room room = null;
+        if (row.get("r_room_name") != null){
+            room = new Room(row.get("r_room_name", String.class));
+            room.setVersion(row.get("r_version", Long.class));
+        }
+        return new AppointmentView(row.get("id", Long.class), patient, doctor, room,
+            row.get("starts_at", LocalDateTime.class), row.get("finishes_at", LocalDateTime.class));
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public Patient getPatient(){
+        return this.patient;
+    }
+
+    public Doctor getDoctor(){
+        return this.doctor;
+    }
+
+    public Room getRoom(){
+        return this.room;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+}
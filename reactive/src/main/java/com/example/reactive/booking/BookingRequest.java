@@ -0,0 +1,66 @@
+package com.example.reactive.booking;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/** Appointment between an existing patient, doctor and room, given by their keys only. */
+public class BookingRequest {
+
+    private Long patientId;
+    private Long doctorId;
+    private String roomName;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private LocalDateTime finishesAt;
+
+    public BookingRequest(){
+        super();
+    }
+
+    public BookingRequest(Long patientId, Long doctorId, String roomName, LocalDateTime startsAt, LocalDateTime finishesAt){
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.roomName = roomName;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    public Long getPatientId(){
+        return this.patientId;
+    }
+    public void setPatientId(Long patientId){
+        this.patientId = patientId;
+    }
+
+    public Long getDoctorId(){
+        return this.doctorId;
+    }
+    public void setDoctorId(Long doctorId){
+        this.doctorId = doctorId;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+    public void setRoomName(String roomName){
+        this.roomName = roomName;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+    public void setStartsAt(LocalDateTime startsAt){
+        this.startsAt = startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+    public void setFinishesAt(LocalDateTime finishesAt){
+        this.finishesAt = finishesAt;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.reactive.booking;
+
+public class BookingResult {
+
+    public enum Status { BOOKED, INVALID, CONFLICT }
+
+    private final Status status;
+    private final Long id;
+
+    private BookingResult(Status status, Long id){
+        this.status = status;
+        this.id = id;
+    }
+
+    public static BookingResult booked(long id){
+        return new BookingResult(Status.BOOKED, id);
+    }
+
+    public static BookingResult invalid(){
+        return new BookingResult(Status.INVALID, null);
+    }
+
+    public static BookingResult conflict(){
+        return new BookingResult(Status.CONFLICT, null);
+    }
+
+    public Status getStatus(){
+        return this.status;
+    }
+
+    /** Null unless booked. */
+    public Long getId(){
+        return this.id;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.reactive.booking;
+
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.reactive.entities.Appointment;
+import com.example.reactive.entities.Doctor;
+import com.example.reactive.entities.Patient;
+import com.example.reactive.entities.Room;
+import com.example.reactive.repositories.AppointmentRepository;
+import com.example.reactive.repositories.DoctorRepository;
+import com.example.reactive.repositories.PatientRepository;
+import com.example.reactive.repositories.RoomRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Booking without in-JVM locks: the room, doctor and patient rows are locked with
+ * SELECT ... FOR UPDATE, always in that order, so concurrent bookings sharing any of
+ * them serialise in the database while the event loop never blocks.
+ */
+@Service
+public class BookingService {
+
+    @Autowired
+    DatabaseClient databaseClient;
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    /** Rows are emitted as the driver reads them, at the pace the subscriber requests. */
+    public Flux<AppointmentView> findAll(){
+        return databaseClient.sql(AppointmentView.SELECT + "order by a.id")
+            .map((row, metadata) -> AppointmentView.of(row))
+            .all();
+    }
+
+    public Mono<AppointmentView> findById(long id){
+        return databaseClient.sql(AppointmentView.SELECT + "where a.id = :id")
+            .bind("id", id)
+            .map((row, metadata) -> AppointmentView.of(row))
+            .one();
+    }
+
+    /** Names a patient, a doctor and a room, and has a valid period. */
+    public boolean isValid(BookingRequest request){
+        return request.getPatientId() != null && request.getDoctorId() != null && request.getRoomName() != null &&
+                isValid(request.getStartsAt(), request.getFinishesAt());
+    }
+
+    /** Has a patient, a doctor and a named room, and a valid period. */
+    public boolean isValid(AppointmentRequest request){
+        return request.getPatient() != null && request.getDoctor() != null &&
+                request.getRoom() != null && request.getRoom().getRoomName() != null &&
+                isValid(request.getStartsAt(), request.getFinishesAt());
+    }
+
+    private static boolean isValid(LocalDateTime startsAt, LocalDateTime finishesAt){
+        return startsAt != null && finishesAt != null && startsAt.isBefore(finishesAt);
+    }
+
+    /** Invalid when the room, doctor or patient does not exist. */
+    @Transactional
+    public Mono<BookingResult> book(BookingRequest request){
+        return roomRepository.findByRoomNameForUpdate(request.getRoomName())
+            .flatMap(room -> doctorRepository.findByIdForUpdate(request.getDoctorId()))
+            .flatMap(doctor -> patientRepository.findByIdForUpdate(request.getPatientId()))
+            .flatMap(patient -> appointmentRepository.countOverlapping(request.getRoomName(), request.getDoctorId(),
+                request.getPatientId(), request.getStartsAt(), request.getFinishesAt()))
+            .flatMap(overlapping -> overlapping > 0
+                ? Mono.just(BookingResult.conflict())
+                : insert(new Appointment(request.getPatientId(), request.getDoctorId(),
+                        request.getRoomName(), request.getStartsAt(), request.getFinishesAt())))
+            .defaultIfEmpty(BookingResult.invalid());
+    }
+
+    /**
+     * Books the way the servlet API's POST /api/appointment does: the room is created
+     * when missing, and a doctor or patient without an id is inserted with the
+     * appointment. Existing rows are locked in the same order as a booking by reference.
+     * Invalid when a doctor or patient given by id does not exist.
+     */
+    @Transactional
+    public Mono<BookingResult> book(AppointmentRequest request){
+        String roomName = request.getRoom().getRoomName();
+        LocalDateTime startsAt = request.getStartsAt();
+        LocalDateTime finishesAt = request.getFinishesAt();
+        return lockOrCreateRoom(roomName)
+            .flatMap(room -> lockDoctor(request.getDoctor()))
+            .flatMap(doctor -> lockPatient(request.getPatient())
+                .flatMap(patient -> appointmentRepository.countOverlapping(roomName, key(doctor.getId()), key(patient.getId()),
+                        startsAt, finishesAt)
+                    .flatMap(overlapping -> overlapping > 0
+                        ? Mono.just(BookingResult.conflict())
+                        : insertIfNew(doctor).flatMap(savedDoctor -> insertIfNew(patient)
+                            .flatMap(savedPatient -> insert(new Appointment(savedPatient.getId(), savedDoctor.getId(),
+                                roomName, startsAt, finishesAt)))))))
+            .defaultIfEmpty(BookingResult.invalid());
+    }
+
+    private Mono<BookingResult> insert(Appointment appointment){
+        return appointmentRepository.save(appointment).map(saved -> BookingResult.booked(saved.getId()));
+    }
+
+    /**
+     * The room, locked. A missing room is inserted, which keeps it locked until commit;
+     * when another booking inserts it first, the duplicate key sends this one back to
+     * lock the row that won.
+     */
+    private Mono<Room> lockOrCreateRoom(String roomName){
+        return roomRepository.findByRoomNameForUpdate(roomName)
+            .switchIfEmpty(Mono.defer(() -> roomRepository.save(new Room(roomName))
+                .onErrorResume(DataIntegrityViolationException.class, e -> roomRepository.findByRoomNameForUpdate(roomName)
+                    .switchIfEmpty(Mono.error(e)))));
+    }
+
+    private Mono<Doctor> lockDoctor(Doctor doctor){
+        return isNew(doctor.getId()) ? Mono.just(doctor) : doctorRepository.findByIdForUpdate(doctor.getId());
+    }
+
+    private Mono<Patient> lockPatient(Patient patient){
+        return isNew(patient.getId()) ? Mono.just(patient) : patientRepository.findByIdForUpdate(patient.getId());
+    }
+
+    private Mono<Doctor> insertIfNew(Doctor doctor){
+        return isNew(doctor.getId())
+            ? doctorRepository.save(new Doctor(doctor.getFirstName(), doctor.getLastName(), doctor.getAge(), doctor.getEmail()))
+            : Mono.just(doctor);
+    }
+
+    private Mono<Patient> insertIfNew(Patient patient){
+        return isNew(patient.getId())
+            ? patientRepository.save(new Patient(patient.getFirstName(), patient.getLastName(), patient.getAge(), patient.getEmail()))
+            : Mono.just(patient);
+    }
+
+    // The servlet API's JSON carries id 0 for rows not saved yet
+    private static boolean isNew(Long id){
+        return id == null || id == 0;
+    }
+
+    // Identity columns start at 1, so a new participant's 0 overlaps nothing
+    private static long key(Long id){
+        return isNew(id) ? 0 : id;
+    }
+
+    /**
+     * Removes every appointment with a single delete. Patients, doctors and rooms are
+     * independent rows and stay, as in the servlet application.
+     */
+    @Transactional
+    public Mono<Void> deleteAll(){
+        return databaseClient.sql("delete from appointment").then();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.reactive.entities;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Appointment row. R2DBC maps no associations, so participants are plain keys;
+ * responses embed them through {@link com.example.reactive.booking.AppointmentView}.
+ */
+@Table("appointment")
+public class Appointment {
+
+    @Id
+    private Long id;
+
+    @JsonIgnore
+    @Version
+    private Long version;
+
+    private Long patientId;
+
+    private Long doctorId;
+
+    @Column("room_id")
+    private String roomName;
+
+    private LocalDateTime startsAt;
+
+    private LocalDateTime finishesAt;
+
+    public Appointment(){
+        super();
+    }
+
+    public Appointment(Long patientId, Long doctorId, String roomName, LocalDateTime startsAt, LocalDateTime finishesAt){
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.roomName = roomName;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    public Long getId(){
+        return this.id;
+    }
+    public void setId(Long id){
+        this.id = id;
+    }
+
+    public Long getVersion(){
+        return this.version;
+    }
+    public void setVersion(Long version){
+        this.version = version;
+    }
+
+    public Long getPatientId(){
+        return this.patientId;
+    }
+
+    public Long getDoctorId(){
+        return this.doctorId;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.reactive.entities;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("doctors")
+public class Doctor extends Person {
+
+    @Id
+    private Long id;
+
+    public Doctor(){
+        super();
+    }
+
+    public Doctor(String firstName, String lastName, int age, String email){
+        super(firstName, lastName, age, email);
+    }
+
+    public Long getId(){
+        return this.id;
+    }
+    public void setId(Long id){
+        this.id = id;
+    }
+}
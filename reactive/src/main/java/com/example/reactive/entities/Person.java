@@ -0,0 +1,63 @@
+package com.example.reactive.entities;
+
+import org.springframework.data.annotation.Version;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public class Person {
+    private String firstName;
+    private String lastName;
+    private int age;
+    private String email;
+
+    @JsonIgnore
+    @Version
+    private Long version;
+
+    public Person(){
+        super();
+    }
+
+    public Person(String firstName, String lastName, int age, String email){
+        super();
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.age = age;
+        this.email = email;
+    }
+
+    public String getFirstName(){
+        return this.firstName;
+    }
+    public void setFirstName(String firstName){
+        this.firstName = firstName;
+    }
+
+    public String getLastName(){
+        return this.lastName;
+    }
+    public void setLastName(String lastName){
+        this.lastName = lastName;
+    }
+
+    public int getAge(){
+        return this.age;
+    }
+    public void setAge(int age){
+        this.age = age;
+    }
+
+    public Long getVersion(){
+        return this.version;
+    }
+    public void setVersion(Long version){
+        this.version = version;
+    }
+
+    public String getEmail(){
+        return this.email;
+    }
+    public void setEmail(String email){
+        this.email = email;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.reactive.entities;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+@Table("room")
+public class Room {
+
+    @Id
+    private String roomName;
+
+    // Also tells inserts from updates, since the id is assigned
+    @JsonIgnore
+    @Version
+    private Long version;
+
+    public Room(){
+        super();
+    }
+
+    public Room(String roomName){
+        super();
+        this.roomName = roomName;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+    public void setRoomName(String roomName){
+        this.roomName = roomName;
+    }
+
+    public Long getVersion(){
+        return this.version;
+    }
+    public void setVersion(Long version){
+        this.version = version;
+    }
+}
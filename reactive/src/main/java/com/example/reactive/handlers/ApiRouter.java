@@ -0,0 +1,43 @@
+package com.example.reactive.handlers;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/** Same paths and status codes as the servlet controllers. */
+@Configuration
+public class ApiRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> apiRoutes(DoctorHandler doctors, PatientHandler patients,
+                                                    RoomHandler rooms, AppointmentHandler appointments){
+        return RouterFunctions.route().path("/api", api -> api
+            .GET("/doctors", doctors::getAll)
+            .GET("/doctors/{id}", doctors::getById)
+            .POST("/doctor", doctors::create)
+            .DELETE("/doctors/{id}", doctors::delete)
+            .DELETE("/doctors", doctors::deleteAll)
+
+            .GET("/patients", patients::getAll)
+            .GET("/patients/{id}", patients::getById)
+            .POST("/patient", patients::create)
+            .DELETE("/patients/{id}", patients::delete)
+            .DELETE("/patients", patients::deleteAll)
+
+            .GET("/rooms", rooms::getAll)
+            .GET("/rooms/{roomName}", rooms::getByRoomName)
+            .POST("/room", rooms::create)
+            .DELETE("/rooms/{roomName}", rooms::delete)
+            .DELETE("/rooms", rooms::deleteAll)
+
+            .GET("/appointments", appointments::getAll)
+            .GET("/appointments/{id}", appointments::getById)
+            .POST("/appointment", appointments::create)
+            .POST("/appointments", appointments::createByReference)
+            .DELETE("/appointments/{id}", appointments::delete)
+            .DELETE("/appointments", appointments::deleteAll))
+            .build();
+    }
+}
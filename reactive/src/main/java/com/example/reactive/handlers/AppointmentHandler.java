@@ -0,0 +1,78 @@
+package com.example.reactive.handlers;
+
+import com.example.reactive.booking.AppointmentRequest;
+import com.example.reactive.booking.AppointmentView;
+import com.example.reactive.booking.BookingRequest;
+import com.example.reactive.booking.BookingResult;
+import com.example.reactive.booking.BookingService;
+import com.example.reactive.repositories.AppointmentRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.publisher.Mono;
+
+@Component
+public class AppointmentHandler {
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    BookingService bookingService;
+
+    public Mono<ServerResponse> getAll(ServerRequest request){
+        return Responses.list(request, bookingService.findAll(), AppointmentView.class);
+    }
+
+    public Mono<ServerResponse> getById(ServerRequest request){
+        return Responses.id(request)
+            .flatMap(id -> bookingService.findById(id)
+                .flatMap(appointment -> ServerResponse.ok().bodyValue(appointment))
+                .switchIfEmpty(ServerResponse.notFound().build()))
+            .switchIfEmpty(Responses.badRequest());
+    }
+
+    /** Books with the participants in the body, answering 200 without a body like the servlet API. */
+    public Mono<ServerResponse> create(ServerRequest request){
+        return request.bodyToMono(AppointmentRequest.class)
+            .filter(bookingService::isValid)
+            .flatMap(bookingService::book)
+            .flatMap(result -> respond(result, ServerResponse.ok().build()))
+            .switchIfEmpty(Responses.badRequest());
+    }
+
+    /** Books by patientId, doctorId and roomName, which must all exist. */
+    public Mono<ServerResponse> createByReference(ServerRequest request){
+        return request.bodyToMono(BookingRequest.class)
+            .filter(bookingService::isValid)
+            .flatMap(bookingService::book)
+            .flatMap(result -> respond(result, ServerResponse.status(HttpStatus.CREATED).bodyValue(result)))
+            .switchIfEmpty(Responses.badRequest());
+    }
+
+    private static Mono<ServerResponse> respond(BookingResult result, Mono<ServerResponse> booked){
+        if (result.getStatus() == BookingResult.Status.CONFLICT){
+            return ServerResponse.status(HttpStatus.NOT_ACCEPTABLE).build();
+        }
+        if (result.getStatus() == BookingResult.Status.INVALID){
+            return Responses.badRequest();
+        }
+        return booked;
+    }
+
+    public Mono<ServerResponse> delete(ServerRequest request){
+        return Responses.id(request)
+            .flatMap(id -> appointmentRepository.findById(id)
+                .flatMap(appointment -> appointmentRepository.delete(appointment).then(ServerResponse.ok().build()))
+                .switchIfEmpty(ServerResponse.notFound().build()))
+            .switchIfEmpty(Responses.badRequest());
+    }
+
+    public Mono<ServerResponse> deleteAll(ServerRequest request){
+        return bookingService.deleteAll().then(ServerResponse.ok().build());
+    }
+}
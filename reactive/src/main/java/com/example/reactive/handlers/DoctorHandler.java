@@ -0,0 +1,50 @@
+package com.example.reactive.handlers;
+
+import com.example.reactive.entities.Doctor;
+import com.example.reactive.repositories.DoctorRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.publisher.Mono;
+
+@Component
+public class DoctorHandler {
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    public Mono<ServerResponse> getAll(ServerRequest request){
+        return Responses.list(request, doctorRepository.findAll(), Doctor.class);
+    }
+
+    public Mono<ServerResponse> getById(ServerRequest request){
+        return Responses.id(request)
+            .flatMap(id -> doctorRepository.findById(id)
+                .flatMap(doctor -> ServerResponse.ok().bodyValue(doctor))
+                .switchIfEmpty(ServerResponse.notFound().build()))
+            .switchIfEmpty(Responses.badRequest());
+    }
+
+    public Mono<ServerResponse> create(ServerRequest request){
+        return request.bodyToMono(Doctor.class)
+            .map(body -> new Doctor(body.getFirstName(), body.getLastName(), body.getAge(), body.getEmail()))
+            .flatMap(doctorRepository::save)
+            .flatMap(doctor -> ServerResponse.status(HttpStatus.CREATED).bodyValue(doctor));
+    }
+
+    public Mono<ServerResponse> delete(ServerRequest request){
+        return Responses.id(request)
+            .flatMap(id -> doctorRepository.findById(id)
+                .flatMap(doctor -> doctorRepository.delete(doctor).then(ServerResponse.ok().build()))
+                .switchIfEmpty(ServerResponse.notFound().build()))
+            .switchIfEmpty(Responses.badRequest());
+    }
+
+    public Mono<ServerResponse> deleteAll(ServerRequest request){
+        return doctorRepository.deleteAll().then(ServerResponse.ok().build());
+    }
+}
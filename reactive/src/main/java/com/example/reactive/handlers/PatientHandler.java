@@ -0,0 +1,50 @@
+package com.example.reactive.handlers;
+
+import com.example.reactive.entities.Patient;
+import com.example.reactive.repositories.PatientRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.publisher.Mono;
+
+@Component
+public class PatientHandler {
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    public Mono<ServerResponse> getAll(ServerRequest request){
+        return Responses.list(request, patientRepository.findAll(), Patient.class);
+    }
+
+    public Mono<ServerResponse> getById(ServerRequest request){
+        return Responses.id(request)
+            .flatMap(id -> patientRepository.findById(id)
+                .flatMap(patient -> ServerResponse.ok().bodyValue(patient))
+                .switchIfEmpty(ServerResponse.notFound().build()))
+            .switchIfEmpty(Responses.badRequest());
+    }
+
+    public Mono<ServerResponse> create(ServerRequest request){
+        return request.bodyToMono(Patient.class)
+            .map(body -> new Patient(body.getFirstName(), body.getLastName(), body.getAge(), body.getEmail()))
+            .flatMap(patientRepository::save)
+            .flatMap(patient -> ServerResponse.status(HttpStatus.CREATED).bodyValue(patient));
+    }
+
+    public Mono<ServerResponse> delete(ServerRequest request){
+        return Responses.id(request)
+            .flatMap(id -> patientRepository.findById(id)
+                .flatMap(patient -> patientRepository.delete(patient).then(ServerResponse.ok().build()))
+                .switchIfEmpty(ServerResponse.notFound().build()))
+            .switchIfEmpty(Responses.badRequest());
+    }
+
+    public Mono<ServerResponse> deleteAll(ServerRequest request){
+        return patientRepository.deleteAll().then(ServerResponse.ok().build());
+    }
+}
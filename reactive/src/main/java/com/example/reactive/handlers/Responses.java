@@ -0,0 +1,42 @@
+package com.example.reactive.handlers;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+final class Responses {
+
+    private Responses(){
+    }
+
+    /**
+     * NDJSON clients get the rows streamed as they are read, with the database pulled
+     * only as fast as the connection drains. A JSON array has to be complete before
+     * it is known to be empty, so it is collected and answered with 204 when empty,
+     * like the servlet API does.
+     */
+    static <T> Mono<ServerResponse> list(ServerRequest request, Flux<T> rows, Class<T> type){
+        if (request.headers().accept().contains(MediaType.APPLICATION_NDJSON)){
+            return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(rows, type);
+        }
+        return rows.collectList().flatMap(list -> list.isEmpty()
+            ? ServerResponse.noContent().build()
+            : ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(list));
+    }
+
+    /** The numeric {id} path variable, or empty when it is not a number. */
+    static Mono<Long> id(ServerRequest request){
+        try {
+            return Mono.just(Long.parseLong(request.pathVariable("id")));
+        } catch (NumberFormatException e){
+            return Mono.empty();
+        }
+    }
+
+    static Mono<ServerResponse> badRequest(){
+        return ServerResponse.badRequest().build();
+    }
+}
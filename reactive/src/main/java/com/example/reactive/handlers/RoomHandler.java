@@ -0,0 +1,53 @@
+package com.example.reactive.handlers;
+
+import com.example.reactive.entities.Room;
+import com.example.reactive.repositories.RoomRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.publisher.Mono;
+
+@Component
+public class RoomHandler {
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    public Mono<ServerResponse> getAll(ServerRequest request){
+        return Responses.list(request, roomRepository.findAll(), Room.class);
+    }
+
+    public Mono<ServerResponse> getByRoomName(ServerRequest request){
+        return roomRepository.findById(request.pathVariable("roomName"))
+            .flatMap(room -> ServerResponse.ok().bodyValue(room))
+            .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    /**
+     * Creating an existing room answers with the stored one, as the servlet API's save does.
+     * When a concurrent create inserts it first, the duplicate key is answered the same way.
+     */
+    public Mono<ServerResponse> create(ServerRequest request){
+        return request.bodyToMono(Room.class)
+            .flatMap(body -> roomRepository.findById(body.getRoomName())
+                .switchIfEmpty(Mono.defer(() -> roomRepository.save(new Room(body.getRoomName()))
+                    .onErrorResume(DataIntegrityViolationException.class, e -> roomRepository.findById(body.getRoomName())
+                        .switchIfEmpty(Mono.error(e))))))
+            .flatMap(room -> ServerResponse.status(HttpStatus.CREATED).bodyValue(room));
+    }
+
+    public Mono<ServerResponse> delete(ServerRequest request){
+        return roomRepository.findById(request.pathVariable("roomName"))
+            .flatMap(room -> roomRepository.delete(room).then(ServerResponse.ok().build()))
+            .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> deleteAll(ServerRequest request){
+        return roomRepository.deleteAll().then(ServerResponse.ok().build());
+    }
+}
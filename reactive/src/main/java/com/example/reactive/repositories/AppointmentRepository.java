@@ -0,0 +1,22 @@
+package com.example.reactive.repositories;
+
+import java.time.LocalDateTime;
+
+import com.example.reactive.entities.Appointment;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+import reactor.core.publisher.Mono;
+
+public interface AppointmentRepository extends ReactiveCrudRepository<Appointment, Long> {
+
+    /** One range probe per participant, so each uses its own (key, starts_at, finishes_at) index. */
+    @Query("select (select count(*) from appointment where room_id = :roomName " +
+           "and starts_at < :finishesAt and finishes_at > :startsAt) + " +
+           "(select count(*) from appointment where doctor_id = :doctorId " +
+           "and starts_at < :finishesAt and finishes_at > :startsAt) + " +
+           "(select count(*) from appointment where patient_id = :patientId " +
+           "and starts_at < :finishesAt and finishes_at > :startsAt)")
+    Mono<Long> countOverlapping(String roomName, Long doctorId, Long patientId, LocalDateTime startsAt, LocalDateTime finishesAt);
+}
@@ -0,0 +1,14 @@
+package com.example.reactive.repositories;
+
+import com.example.reactive.entities.Doctor;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+import reactor.core.publisher.Mono;
+
+public interface DoctorRepository extends ReactiveCrudRepository<Doctor, Long> {
+
+    @Query("select * from doctors where id = :id for update")
+    Mono<Doctor> findByIdForUpdate(Long id);
+}
@@ -0,0 +1,14 @@
+package com.example.reactive.repositories;
+
+import com.example.reactive.entities.Patient;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+import reactor.core.publisher.Mono;
+
+public interface PatientRepository extends ReactiveCrudRepository<Patient, Long> {
+
+    @Query("select * from patient where id = :id for update")
+    Mono<Patient> findByIdForUpdate(Long id);
+}
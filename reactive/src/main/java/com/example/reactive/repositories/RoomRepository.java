@@ -0,0 +1,14 @@
+package com.example.reactive.repositories;
+
+import com.example.reactive.entities.Room;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+import reactor.core.publisher.Mono;
+
+public interface RoomRepository extends ReactiveCrudRepository<Room, String> {
+
+    @Query("select * from room where room_name = :roomName for update")
+    Mono<Room> findByRoomNameForUpdate(String roomName);
+}
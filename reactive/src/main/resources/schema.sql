@@ -0,0 +1,42 @@
+-- Same tables and columns as the JPA mapping, with identity columns since R2DBC has no id generators
+create table if not exists doctors (
+    id bigint auto_increment primary key,
+    first_name varchar(255),
+    last_name varchar(255),
+    age int not null,
+    email varchar(255),
+    version bigint
+);
+
+create table if not exists patient (
+    id bigint auto_increment primary key,
+    first_name varchar(255),
+    last_name varchar(255),
+    age int not null,
+    email varchar(255),
+    version bigint
+);
+
+create table if not exists room (
+    room_name varchar(255) primary key,
+    version bigint
+);
+
+create table if not exists appointment (
+    id bigint auto_increment primary key,
+    version bigint,
+    patient_id bigint,
+    doctor_id bigint,
+    room_id varchar(255),
+    starts_at timestamp,
+    finishes_at timestamp,
+    foreign key (patient_id) references patient (id),
+    foreign key (doctor_id) references doctors (id),
+    foreign key (room_id) references room (room_name)
+);
+
+-- Same booking indexes as the JPA mapping. MariaDB and H2 accept "if not exists" on
+-- indexes, MySQL does not: there, create them once and drop these lines.
+create index if not exists idx_appointment_room_time on appointment (room_id, starts_at, finishes_at);
+create index if not exists idx_appointment_doctor_time on appointment (doctor_id, starts_at, finishes_at);
+create index if not exists idx_appointment_patient_time on appointment (patient_id, starts_at, finishes_at);
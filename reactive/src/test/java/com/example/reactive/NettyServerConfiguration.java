@@ -0,0 +1,15 @@
+package com.example.reactive;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+
+/** With -Pbenchmark Tomcat is on the test classpath too, and would otherwise be preferred for the reactive server. */
+@TestConfiguration
+public class NettyServerConfiguration {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(){
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.reactive.booking.AppointmentRequest;
+import com.example.reactive.booking.BookingRequest;
+import com.example.reactive.entities.Doctor;
+import com.example.reactive.entities.Patient;
+import com.example.reactive.entities.Room;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Import(NettyServerConfiguration.class)
+class ReactiveApiUnitTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+    @Autowired
+    private WebTestClient client;
+
+    @BeforeEach
+    void cleanUp(){
+        client.delete().uri("/api/appointments").exchange().expectStatus().isOk();
+        client.delete().uri("/api/doctors").exchange().expectStatus().isOk();
+        client.delete().uri("/api/patients").exchange().expectStatus().isOk();
+        client.delete().uri("/api/rooms").exchange().expectStatus().isOk();
+    }
+
+    private Doctor createDoctor(){
+        return client.post().uri("/api/doctor")
+            .bodyValue(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(Doctor.class).returnResult().getResponseBody();
+    }
+
+    private Patient createPatient(){
+        return client.post().uri("/api/patient")
+            .bodyValue(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(Patient.class).returnResult().getResponseBody();
+    }
+
+    private WebTestClient.ResponseSpec book(Long patientId, Long doctorId, String roomName, LocalDateTime startsAt){
+        return client.post().uri("/api/appointments")
+            .bodyValue(new BookingRequest(patientId, doctorId, roomName, startsAt, startsAt.plusHours(1)))
+            .exchange();
+    }
+
+    private WebTestClient.ResponseSpec bookInBody(Patient patient, Doctor doctor, String roomName, LocalDateTime startsAt){
+        return client.post().uri("/api/appointment")
+            .bodyValue(new AppointmentRequest(patient, doctor, new Room(roomName), startsAt, startsAt.plusHours(1)))
+            .exchange();
+    }
+
+    @Test
+    void shouldCreateGetAndDeleteDoctor(){
+        client.get().uri("/api/doctors").exchange().expectStatus().isNoContent();
+
+        Doctor doctor = createDoctor();
+        assertThat(doctor.getId()).isNotNull();
+
+        client.get().uri("/api/doctors").exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$[0].firstName").isEqualTo("Perla");
+        client.get().uri("/api/doctors/{id}", doctor.getId()).exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.email").isEqualTo("p.amalia@hospital.accwe");
+
+        client.delete().uri("/api/doctors/{id}", doctor.getId()).exchange().expectStatus().isOk();
+        client.get().uri("/api/doctors/{id}", doctor.getId()).exchange().expectStatus().isNotFound();
+        client.delete().uri("/api/doctors/{id}", doctor.getId()).exchange().expectStatus().isNotFound();
+        client.get().uri("/api/doctors/not-a-number").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldCreateRoomOnce(){
+        client.post().uri("/api/room").bodyValue(new Room("Dermatology")).exchange().expectStatus().isCreated();
+        client.post().uri("/api/room").bodyValue(new Room("Dermatology")).exchange().expectStatus().isCreated();
+
+        client.get().uri("/api/rooms").exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.length()").isEqualTo(1);
+        client.get().uri("/api/rooms/Oncology").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldCreateRoomOnceUnderConcurrentCreates() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<HttpStatus>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++){
+            results.add(executor.submit(() -> {
+                start.await();
+                return client.post().uri("/api/room").bodyValue(new Room("Dermatology")).exchange()
+                    .returnResult(Room.class).getStatus();
+            }));
+        }
+        start.countDown();
+
+        for (Future<HttpStatus> result : results){
+            assertThat(result.get()).isEqualTo(HttpStatus.CREATED);
+        }
+        executor.shutdown();
+        client.get().uri("/api/rooms").exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    void shouldBookWithParticipantsInTheBodyAndRejectConflicts(){
+        Doctor doctor = createDoctor();
+        Doctor newDoctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Patient newPatient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+
+        // New participants and room are created with the appointment
+        bookInBody(newPatient, doctor, "Dermatology", NINE).expectStatus().isOk().expectBody().isEmpty();
+        client.get().uri("/api/rooms/Dermatology").exchange().expectStatus().isOk();
+        client.get().uri("/api/patients").exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.length()").isEqualTo(1);
+
+        // Same room, and the existing doctor in another room, overlap
+        bookInBody(newPatient, newDoctor, "Dermatology", NINE.plusMinutes(30)).expectStatus().isEqualTo(406);
+        bookInBody(newPatient, doctor, "Oncology", NINE.plusMinutes(30)).expectStatus().isEqualTo(406);
+        bookInBody(newPatient, newDoctor, "Oncology", NINE.plusMinutes(30)).expectStatus().isOk();
+
+        Doctor missing = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        missing.setId(doctor.getId() + 100);
+        bookInBody(newPatient, missing, "Oncology", NINE.plusHours(2)).expectStatus().isBadRequest();
+        client.post().uri("/api/appointment")
+            .bodyValue(new AppointmentRequest(newPatient, newDoctor, new Room("Oncology"), NINE.plusHours(3), NINE.plusHours(3)))
+            .exchange().expectStatus().isBadRequest();
+
+        client.get().uri("/api/appointments").exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.length()").isEqualTo(2);
+    }
+
+    @Test
+    void shouldBookByReferenceAndRejectConflicts(){
+        Doctor doctor = createDoctor();
+        Patient patient = createPatient();
+        client.post().uri("/api/room").bodyValue(new Room("Dermatology")).exchange().expectStatus().isCreated();
+
+        book(patient.getId(), doctor.getId(), "Dermatology", NINE).expectStatus().isCreated()
+            .expectBody().jsonPath("$.status").isEqualTo("BOOKED");
+        book(patient.getId(), doctor.getId(), "Dermatology", NINE.plusMinutes(30)).expectStatus().isEqualTo(406);
+        book(patient.getId(), doctor.getId(), "Oncology", NINE.plusHours(2)).expectStatus().isBadRequest();
+        book(patient.getId(), null, "Dermatology", NINE.plusHours(2)).expectStatus().isBadRequest();
+
+        client.get().uri("/api/appointments").exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(1)
+            .jsonPath("$[0].patient.firstName").isEqualTo("Jose Luis")
+            .jsonPath("$[0].doctor.id").isEqualTo(doctor.getId())
+            .jsonPath("$[0].room.roomName").isEqualTo("Dermatology")
+            .jsonPath("$[0].startsAt").isEqualTo("09:00 24/04/2023");
+    }
+
+    @Test
+    void shouldRejectDoctorAndPatientDoubleBookingAcrossRooms(){
+        Doctor doctor = createDoctor();
+        Doctor otherDoctor = createDoctor();
+        Patient patient = createPatient();
+        Patient otherPatient = createPatient();
+        client.post().uri("/api/room").bodyValue(new Room("Dermatology")).exchange().expectStatus().isCreated();
+        client.post().uri("/api/room").bodyValue(new Room("Oncology")).exchange().expectStatus().isCreated();
+
+        book(patient.getId(), doctor.getId(), "Dermatology", NINE).expectStatus().isCreated();
+        book(otherPatient.getId(), doctor.getId(), "Oncology", NINE.plusMinutes(30)).expectStatus().isEqualTo(406);
+        book(patient.getId(), otherDoctor.getId(), "Oncology", NINE.plusMinutes(30)).expectStatus().isEqualTo(406);
+        book(otherPatient.getId(), otherDoctor.getId(), "Oncology", NINE.plusMinutes(30)).expectStatus().isCreated();
+    }
+
+    @Test
+    void shouldStreamAppointmentsAsNdjson(){
+        Doctor doctor = createDoctor();
+        Patient patient = createPatient();
+        client.post().uri("/api/room").bodyValue(new Room("Dermatology")).exchange().expectStatus().isCreated();
+        for (int i = 0; i < 3; i++){
+            book(patient.getId(), doctor.getId(), "Dermatology", NINE.plusHours(i)).expectStatus().isCreated();
+        }
+
+        List<String> lines = client.get().uri("/api/appointments")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(String.class).getResponseBody()
+            .collectList().block();
+
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).contains("\"startsAt\":\"09:00 24/04/2023\"");
+    }
+
+    @Test
+    void shouldDeleteAppointmentsButKeepParticipants(){
+        Doctor doctor = createDoctor();
+        Patient patient = createPatient();
+        client.post().uri("/api/room").bodyValue(new Room("Dermatology")).exchange().expectStatus().isCreated();
+        book(patient.getId(), doctor.getId(), "Dermatology", NINE).expectStatus().isCreated();
+
+        client.delete().uri("/api/appointments").exchange().expectStatus().isOk();
+
+        client.get().uri("/api/appointments").exchange().expectStatus().isNoContent();
+        client.get().uri("/api/patients/{id}", patient.getId()).exchange().expectStatus().isOk();
+        client.get().uri("/api/doctors/{id}", doctor.getId()).exchange().expectStatus().isOk();
+        client.get().uri("/api/rooms/Dermatology").exchange().expectStatus().isOk();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+
+/** Back to back half hour appointments spread over ROOMS rooms, with no double bookings. */
+final class AppointmentFixtures {
+
+    static final LocalDateTime BASE = LocalDateTime.of(2023, 4, 24, 8, 0);
+    static final int ROOMS = 100;
+    static final int DOCTORS = 500;
+    static final int PATIENTS = 5000;
+
+    private AppointmentFixtures(){
+    }
+
+    static Doctor doctor(long id){
+        Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(id);
+        return doctor;
+    }
+
+    static Patient patient(long id){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        patient.setId(id);
+        return patient;
+    }
+
+    /** Appointment i takes room i % ROOMS in half hour slot i / ROOMS. */
+    static List<Appointment> appointments(int count){
+        Room[] rooms = new Room[ROOMS];
+        for (int i = 0; i < ROOMS; i++){
+            rooms[i] = new Room("Room" + i);
+        }
+        Doctor[] doctors = new Doctor[DOCTORS];
+        for (int i = 0; i < DOCTORS; i++){
+            doctors[i] = doctor(i + 1);
+        }
+        Patient[] patients = new Patient[PATIENTS];
+        for (int i = 0; i < PATIENTS; i++){
+            patients[i] = patient(i + 1);
+        }
+
+        List<Appointment> appointments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            LocalDateTime startsAt = BASE.plusMinutes(30L * (i / ROOMS));
+            Appointment appointment = new Appointment(patients[i % PATIENTS], doctors[i % DOCTORS], rooms[i % ROOMS],
+                                                      startsAt, startsAt.plusMinutes(30));
+            appointment.setId(i + 1L);
+            appointments.add(appointment);
+        }
+        return appointments;
+    }
+
+    /** Shares room, doctor and patient with existing appointments, but starts after all of them. */
+    static Appointment freeCandidate(int count){
+        LocalDateTime startsAt = BASE.plusMinutes(30L * (count / ROOMS + 1));
+        return new Appointment(patient(1), doctor(1), new Room("Room0"), startsAt, startsAt.plusMinutes(30));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.demo.entities.Appointment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** Jackson round trip of an Appointment with the "HH:mm dd/MM/yyyy" dates of JacksonConfiguration. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AppointmentJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Appointment appointment;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Built the way Spring Boot builds the application's mapper
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        new JacksonConfiguration().jackson2ObjectMapperBuilderCustomizer().customize(builder);
+        objectMapper = builder.build();
+
+        appointment = AppointmentFixtures.appointments(1).get(0);
+        json = objectMapper.writeValueAsBytes(appointment);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(appointment);
+    }
+
+    @Benchmark
+    public Appointment deserialize() throws IOException {
+        return objectMapper.readValue(json, Appointment.class);
+    }
+
+    @Benchmark
+    public Appointment roundTrip() throws IOException {
+        return objectMapper.readValue(objectMapper.writeValueAsBytes(appointment), Appointment.class);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Room;
+
+/** Appointment.overlaps for one pair, through each of its exits. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AppointmentOverlapsBenchmark {
+
+    private Appointment booked;
+    private Appointment sameRoomSameTime;
+    private Appointment sameRoomLater;
+    private Appointment otherResources;
+
+    @Setup
+    public void setUp(){
+        booked = new Appointment(AppointmentFixtures.patient(1), AppointmentFixtures.doctor(1), new Room("Room0"),
+                                 AppointmentFixtures.BASE, AppointmentFixtures.BASE.plusMinutes(30));
+        sameRoomSameTime = new Appointment(AppointmentFixtures.patient(2), AppointmentFixtures.doctor(2), new Room("Room0"),
+                                           AppointmentFixtures.BASE.plusMinutes(15), AppointmentFixtures.BASE.plusMinutes(45));
+        sameRoomLater = new Appointment(AppointmentFixtures.patient(2), AppointmentFixtures.doctor(2), new Room("Room0"),
+                                        AppointmentFixtures.BASE.plusHours(1), AppointmentFixtures.BASE.plusMinutes(90));
+        otherResources = new Appointment(AppointmentFixtures.patient(2), AppointmentFixtures.doctor(2), new Room("Room1"),
+                                         AppointmentFixtures.BASE, AppointmentFixtures.BASE.plusMinutes(30));
+    }
+
+    @Benchmark
+    public boolean overlapping(){
+        return booked.overlaps(sameRoomSameTime);
+    }
+
+    @Benchmark
+    public boolean sharedRoomOnly(){
+        return booked.overlaps(sameRoomLater);
+    }
+
+    @Benchmark
+    public boolean noSharedResource(){
+        return booked.overlaps(otherResources);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.scheduling.AppointmentIndex;
+
+/**
+ * The in-memory conflict check for a free slot, which is its worst case: the scan of
+ * every booked appointment createAppointment started out with, against the
+ * AppointmentIndex lookup it now only uses as a hint before the database check.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+@State(Scope.Benchmark)
+public class OverlapScanBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int appointments;
+
+    private List<Appointment> booked;
+    private AppointmentIndex index;
+    private Appointment candidate;
+
+    @Setup
+    public void setUp(){
+        booked = AppointmentFixtures.appointments(appointments);
+        index = new AppointmentIndex();
+        booked.forEach(index::add);
+        candidate = AppointmentFixtures.freeCandidate(appointments);
+    }
+
+    @Benchmark
+    public boolean linearScan(){
+        for (Appointment appointment : booked){
+            if (appointment.overlaps(candidate)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean appointmentIndex(){
+        return index.overlaps(candidate);
+    }
+}
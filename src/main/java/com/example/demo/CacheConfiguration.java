@@ -0,0 +1,83 @@
+package com.example.demo;
+
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+/**
+ * Hibernate second-level cache for doctors, patients and rooms, held in bounded
+ * Caffeine caches through JCache. Hit and miss counts are published by Hibernate's
+ * statistics as hibernate.second.level.cache.requests, tagged by region.
+ *
+ * With cache.entities.enabled=false the second-level cache is switched off altogether,
+ * rather than left to Hibernate, which would create unbounded caches on the fly.
+ */
+@Configuration
+public class CacheConfiguration {
+
+    private static final String ENABLED = "cache.entities.enabled";
+
+    static final String[] ENTITY_REGIONS = {
+        Doctor.class.getName(), Patient.class.getName(), Room.class.getName()
+    };
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = ENABLED, matchIfMissing = true)
+    public CacheManager entityCacheManager(
+            @Value("${cache.entities.max-size:10000}") long maxSize,
+            @Value("${cache.entities.ttl-seconds:600}") long ttlSeconds){
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // A manager of its own, so closing one application context leaves the others' caches alone
+        CacheManager cacheManager = provider.getCacheManager(
+            URI.create("demo-entities-" + System.identityHashCode(this)), getClass().getClassLoader());
+
+        for (String region : ENTITY_REGIONS){
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+            configuration.setStatisticsEnabled(true);
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, matchIfMissing = true)
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager){
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(AvailableSettings.JPA_SHARED_CACHE_MODE, "ENABLE_SELECTIVE");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "false")
+    public HibernatePropertiesCustomizer noEntityCacheCustomizer(){
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.demo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.classify.BinaryExceptionClassifier;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.listener.RetryListenerSupport;
+import org.springframework.retry.support.RetryTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+@Configuration
+public class RetryConfiguration {
+
+    @Bean
+    public RetryTemplate bookingRetryTemplate(
+            @Value("${booking.lock.max-attempts:3}") int maxAttempts,
+            @Value("${booking.lock.backoff-ms:50}") long backoffMs,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+
+        // Lock timeouts, deadlocks and version conflicts surface as ConcurrencyFailureException,
+        // a room inserted concurrently by another node as DuplicateKeyException from BookingService.
+        // Other integrity violations, like foreign key or not null errors, fail at once.
+        List<Class<? extends Throwable>> conflicts =
+            Arrays.asList(ConcurrencyFailureException.class, DuplicateKeyException.class);
+        return RetryTemplate.builder()
+            .maxAttempts(maxAttempts)
+            .exponentialBackoff(backoffMs, 2, backoffMs * 8)
+            .retryOn(conflicts)
+            .traversingCauses()
+            .withListener(new ConflictMetrics(registry(meterRegistry), "booking", conflicts))
+            .build();
+    }
+
+    /**
+     * Version conflicts on the read-then-write paths, the deletes by id. Every attempt
+     * reads the row again, so one that lost to a concurrent delete answers 404 instead.
+     */
+    @Bean
+    public RetryTemplate optimisticRetryTemplate(
+            @Value("${retry.optimistic.max-attempts:3}") int maxAttempts,
+            @Value("${retry.optimistic.backoff-ms:20}") long backoffMs,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+
+        List<Class<? extends Throwable>> conflicts =
+            Collections.singletonList(OptimisticLockingFailureException.class);
+        return RetryTemplate.builder()
+            .maxAttempts(maxAttempts)
+            .exponentialBackoff(backoffMs, 2, backoffMs * 8)
+            .retryOn(conflicts)
+            .traversingCauses()
+            .withListener(new ConflictMetrics(registry(meterRegistry), "optimistic", conflicts))
+            .build();
+    }
+
+    private static MeterRegistry registry(ObjectProvider<MeterRegistry> meterRegistry){
+        return meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    /**
+     * Counts every attempt that failed with a conflict, every attempt made after one,
+     * and operations whose last attempt still conflicted.
+     */
+    static class ConflictMetrics extends RetryListenerSupport {
+
+        private static final String CONFLICTS = "conflicts";
+
+        private final BinaryExceptionClassifier classifier;
+        private final Counter conflicts;
+        private final Counter retries;
+        private final Counter exhausted;
+
+        ConflictMetrics(MeterRegistry registry, String policy, List<Class<? extends Throwable>> conflictTypes){
+            this.classifier = new BinaryExceptionClassifier(conflictTypes, true);
+            this.classifier.setTraverseCauses(true);
+            this.conflicts = Counter.builder("retry.conflicts").tag("policy", policy)
+                .description("Failed attempts caused by a concurrency conflict").register(registry);
+            this.retries = Counter.builder("retry.retries").tag("policy", policy)
+                .description("Attempts made after a conflict").register(registry);
+            this.exhausted = Counter.builder("retry.exhausted").tag("policy", policy)
+                .description("Operations that still conflicted on their last attempt").register(registry);
+        }
+
+        @Override
+        public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable){
+            if (classifier.classify(throwable)){
+                conflicts.increment();
+                Integer seen = (Integer) context.getAttribute(CONFLICTS);
+                context.setAttribute(CONFLICTS, seen == null ? 1 : seen + 1);
+            }
+        }
+
+        @Override
+        public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable){
+            Integer seen = (Integer) context.getAttribute(CONFLICTS);
+            int retried = seen == null ? 0 : seen;
+            if (throwable != null && classifier.classify(throwable)){
+                exhausted.increment();
+                retried--;
+            }
+            if (retried > 0){
+                retries.increment(retried);
+            }
+        }
+    }
+}
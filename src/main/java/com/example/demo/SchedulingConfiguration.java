@@ -0,0 +1,13 @@
+package com.example.demo;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the periodic ETag counter refresh, see {@link com.example.demo.controllers.ChangeVersions},
+ * and the read of the longest appointment in {@link com.example.demo.scheduling.BookingService}.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
@@ -0,0 +1,48 @@
+package com.example.demo;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+/**
+ * Runs every servlet request, and with it the repository calls it makes, on a virtual
+ * thread of its own instead of Tomcat's worker pool. A request blocked on the database
+ * then parks its virtual thread and frees the carrier, so request concurrency is no
+ * longer capped by server.tomcat.threads.max. The Hikari pool still caps how many of
+ * them talk to the database at once, size it for the database rather than for traffic.
+ *
+ * mysql-connector-j 8.0 does its socket I/O inside synchronized blocks, so a virtual
+ * thread waiting on MySQL stays pinned to its carrier. Only as many queries as there
+ * are carriers (one per core unless jdk.virtualThreadScheduler.parallelism says
+ * otherwise) are then in flight, and every other virtual thread waits behind them.
+ * Until the driver drops those monitors, keep the Hikari pool no larger than the
+ * carrier count, or leave this off. -Djdk.tracePinnedThreads=short shows the pinning.
+ *
+ * Streamed responses (the NDJSON export) run on virtual threads too.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService virtualThreadRequestExecutor(){
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-virtual-", 0).factory());
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadRequestExecutor){
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadRequestExecutor);
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(){
+        return new TaskExecutorAdapter(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("task-virtual-", 0).factory()));
+    }
+}
@@ -2,21 +2,46 @@ package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
 import com.example.demo.entities.*;
+import com.example.demo.export.AppointmentExporter;
+import com.example.demo.scheduling.AppointmentIndex;
+import com.example.demo.scheduling.BookedSlot;
+import com.example.demo.scheduling.BookingLocks;
+import com.example.demo.scheduling.BookingRequest;
+import com.example.demo.scheduling.BookingResult;
+import com.example.demo.scheduling.BookingService;
+import com.example.demo.scheduling.FreeSlot;
+import com.example.demo.scheduling.OccupancyGrid;
+import com.example.demo.views.AppointmentSummary;
+import com.example.demo.views.AppointmentView;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 @RestController
@@ -26,11 +51,138 @@ public class AppointmentController {
     @Autowired
     AppointmentRepository appointmentRepository;
 
+    @Autowired
+    AppointmentIndex appointmentIndex;
+
+    @Autowired
+    BookingLocks bookingLocks;
+
+    @Autowired
+    BookingService bookingService;
+
+    @Autowired
+    RetryTemplate bookingRetryTemplate;
+
+    @Autowired
+    RetryTemplate optimisticRetryTemplate;
+
+    @Autowired
+    AppointmentExporter appointmentExporter;
+
+    @Autowired
+    ChangeVersions changeVersions;
+
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final String DATE_TIME_PATTERN = "HH:mm dd/MM/yyyy";
+
+    private static final String FLAT_VIEW = "flat";
+
     @GetMapping("/appointments")
-    public ResponseEntity<List<Appointment>> getAllAppointments(){
-        List<Appointment> appointments = new ArrayList<>();
+    public ResponseEntity<? extends List<?>> getAllAppointments(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "view", required = false) String view,
+            WebRequest request){
+        if (request.checkNotModified(etag())){
+            return null;
+        }
+        if (view != null && !FLAT_VIEW.equals(view)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        ResponseEntity<List<AppointmentView>> response;
+        if (limit != null || after != null){
+            response = getAppointmentsPage(limit == null ? PageCursor.DEFAULT_LIMIT : limit, after);
+        } else {
+            List<AppointmentView> appointments = appointmentRepository.findAllViews();
+            response = appointments.isEmpty()
+                ? new ResponseEntity<>(HttpStatus.NO_CONTENT)
+                : new ResponseEntity<>(appointments, HttpStatus.OK);
+        }
+
+        return view == null ? response : flatten(response);
+    }
+
+    private ResponseEntity<List<AppointmentView>> getAppointmentsPage(int limit, String after){
+        if (!PageCursor.isValidLimit(limit)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        // Appointments are paged by (startsAt, id); the cursor holds both.
+        List<AppointmentView> appointments;
+        if (after == null){
+            appointments = appointmentRepository.findFirstPage(PageCursor.firstRows(limit));
+        } else {
+            try {
+                String key = PageCursor.decode(after);
+                int separator = key.lastIndexOf('|');
+                LocalDateTime startsAt = LocalDateTime.parse(key.substring(0, separator));
+                long id = Long.parseLong(key.substring(separator + 1));
+                appointments = appointmentRepository.findPageAfter(startsAt, id, PageCursor.firstRows(limit));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e){
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        }
+        return PageCursor.page(appointments, limit, appointment -> appointment.getStartsAt() + "|" + appointment.getId());
+    }
+
+    /** Same status and paging headers, with participants flattened to ids and names. */
+    private static ResponseEntity<List<AppointmentSummary>> flatten(ResponseEntity<List<AppointmentView>> response){
+        if (!response.hasBody()){
+            return new ResponseEntity<>(response.getHeaders(), response.getStatusCode());
+        }
+        List<AppointmentSummary> summaries = response.getBody().stream()
+            .map(AppointmentSummary::of)
+            .collect(Collectors.toList());
+        return new ResponseEntity<>(summaries, response.getHeaders(), response.getStatusCode());
+    }
+
+    @GetMapping(value = "/appointments", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAppointments(){
+        StreamingResponseBody body = appointmentExporter::writeNdjson;
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+            .body(body);
+    }
+
+    @GetMapping("/rooms/{roomName}/appointments")
+    public ResponseEntity<List<Appointment>> getRoomAppointments(
+            @PathVariable("roomName") String roomName,
+            @RequestParam("from") @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime to,
+            WebRequest request){
+        return getWindow(from, to, request, () -> bookingService.findInRoom(roomName, from, to));
+    }
+
+    @GetMapping("/doctors/{id}/appointments")
+    public ResponseEntity<List<Appointment>> getDoctorAppointments(
+            @PathVariable("id") long id,
+            @RequestParam("from") @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime to,
+            WebRequest request){
+        return getWindow(from, to, request, () -> bookingService.findForDoctor(id, from, to));
+    }
+
+    @GetMapping("/patients/{id}/appointments")
+    public ResponseEntity<List<Appointment>> getPatientAppointments(
+            @PathVariable("id") long id,
+            @RequestParam("from") @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime to,
+            WebRequest request){
+        return getWindow(from, to, request, () -> bookingService.findForPatient(id, from, to));
+    }
+
+    private ResponseEntity<List<Appointment>> getWindow(LocalDateTime from, LocalDateTime to, WebRequest request,
+                                                        Supplier<List<Appointment>> query){
+        if (!from.isBefore(to)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (request.checkNotModified(etag())){
+            return null;
+        }
 
-        appointmentRepository.findAll().forEach(appointments::add);
+        List<Appointment> appointments = query.get();
 
         if (appointments.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -39,8 +191,58 @@ public class AppointmentController {
         return new ResponseEntity<>(appointments, HttpStatus.OK);
     }
 
+    @GetMapping("/slots")
+    public ResponseEntity<List<FreeSlot>> getFreeSlots(
+            @RequestParam(value = "room", required = false) String roomName,
+            @RequestParam(value = "doctor", required = false) Long doctorId,
+            @RequestParam("from") @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime to,
+            @RequestParam("duration") long durationMinutes,
+            @RequestParam(value = "limit", defaultValue = "10") int limit){
+        if (
+            (roomName == null && doctorId == null) ||
+            !from.isBefore(to) ||
+            durationMinutes <= 0 || durationMinutes > Duration.between(from, to).toMinutes() ||
+            !PageCursor.isValidLimit(limit)
+        ){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<FreeSlot> slots = bookingService.findFreeSlots(roomName, doctorId, from, to,
+            Duration.ofMinutes(durationMinutes), Math.min(limit, PageCursor.MAX_LIMIT));
+
+        if (slots.isEmpty()){
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+
+        return new ResponseEntity<>(slots, HttpStatus.OK);
+    }
+
+    /** Answered from this node's index, which does not see changes made through other nodes. */
+    @GetMapping("/rooms/{roomName}/free")
+    public ResponseEntity<Boolean> isRoomFree(
+            @PathVariable("roomName") String roomName,
+            @RequestParam("from") @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime to){
+        if (!from.isBefore(to)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(appointmentIndex.isRoomFree(roomName, from, to), HttpStatus.OK);
+    }
+
+    /** Answered from this node's index, like the room availability above. */
+    @GetMapping("/occupancy")
+    public ResponseEntity<OccupancyGrid> getOccupancy(
+            @RequestParam("date") @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate date){
+        OccupancyGrid grid = new OccupancyGrid(date, appointmentIndex.getSlotMinutes(), appointmentIndex.occupancy(date));
+        return new ResponseEntity<>(grid, HttpStatus.OK);
+    }
+
     @GetMapping("/appointments/{id}")
-    public ResponseEntity<Appointment> getAppointmentById(@PathVariable("id") long id){
+    public ResponseEntity<Appointment> getAppointmentById(@PathVariable("id") long id, WebRequest request){
+        if (request.checkNotModified(etag())){
+            return null;
+        }
         Optional<Appointment> appointment = appointmentRepository.findById(id);
 
         if (appointment.isPresent()){
@@ -52,42 +254,126 @@ public class AppointmentController {
 
     @PostMapping("/appointment")
     public ResponseEntity<List<Appointment>> createAppointment(@RequestBody Appointment appointment){
-        if(
-            appointment.getStartsAt().equals(appointment.getFinishesAt()) ||
-            appointment.getStartsAt().isAfter(appointment.getFinishesAt())
-        ){
+        if(!bookingService.isValid(appointment)){
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
         
-        List<Appointment> appointments = appointmentRepository.findAll();
-        boolean overlaps = appointments.stream().anyMatch(appointment::overlaps);
-        if(overlaps){
-            return new ResponseEntity<>(HttpStatus.NOT_ACCEPTABLE);
+        // Locks are taken per attempt, so the backoff between attempts holds none of them
+        return bookingRetryTemplate.execute(context -> bookingLocks.withLocks(appointment, () -> {
+            // Only a hint, this node's index misses deletes made through other nodes
+            boolean indexed = appointmentIndex.overlaps(appointment);
+
+            Set<Class<?>> inserted = new HashSet<>();
+            Optional<Appointment> booked = bookingService.book(appointment.copy(), inserted);
+            // Also on conflict: booking may have created the room
+            changeVersions.changed(changes(booked.isPresent(), inserted));
+            if(!booked.isPresent()){
+                return new ResponseEntity<>(HttpStatus.NOT_ACCEPTABLE);
+            }
+
+            if (indexed){
+                appointmentIndex.forgetOverlapping(BookedSlot.of(booked.get()));
+            }
+            appointmentIndex.add(booked.get());
+            return new ResponseEntity<>(HttpStatus.OK);
+        }));
+    }
+
+    /** Books by patientId, doctorId and roomName, which must all exist. */
+    @PostMapping("/appointments")
+    public ResponseEntity<BookingResult> createAppointmentByReference(@RequestBody BookingRequest request){
+        if (!bookingService.isValid(request)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
-        appointmentRepository.save(appointment);
-        return new ResponseEntity<>(HttpStatus.OK);
+        BookedSlot slot = request.toSlot(0);
+        return bookingRetryTemplate.execute(context -> bookingLocks.withLocks(slot, () -> {
+            boolean indexed = appointmentIndex.overlaps(slot);
+
+            BookingResult result = bookingService.book(request);
+            if (result.getStatus() == BookingResult.Status.INVALID){
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            if (result.getStatus() == BookingResult.Status.CONFLICT){
+                return new ResponseEntity<>(HttpStatus.NOT_ACCEPTABLE);
+            }
+
+            BookedSlot booked = request.toSlot(result.getId());
+            if (indexed){
+                appointmentIndex.forgetOverlapping(booked);
+            }
+            appointmentIndex.add(booked);
+            changeVersions.changed(ChangeVersions.Type.APPOINTMENTS);
+            return new ResponseEntity<>(result, HttpStatus.CREATED);
+        }));
+    }
+
+    @PostMapping("/appointments/bulk")
+    public ResponseEntity<List<BookingResult>> createAppointments(@RequestBody List<Appointment> appointments){
+        if (appointments.isEmpty()){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<BookingResult> results = bookingRetryTemplate.execute(context -> bookingLocks.withLocks(appointments, () -> {
+            List<Appointment> attempt = appointments.stream().map(Appointment::copy).collect(Collectors.toList());
+            List<BookingResult> booked = bookingService.bookAll(attempt);
+            for (BookingResult result : booked){
+                if (result.getStatus() == BookingResult.Status.BOOKED){
+                    appointmentIndex.add(attempt.get(result.getIndex()));
+                }
+            }
+            return booked;
+        }));
+        changeVersions.changed(ChangeVersions.Type.values());
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
+    /** APPOINTMENTS when booked, and the types of the participant rows the booking inserted. */
+    private static ChangeVersions.Type[] changes(boolean booked, Set<Class<?>> inserted){
+        List<ChangeVersions.Type> types = new ArrayList<>();
+        if (booked){
+            types.add(ChangeVersions.Type.APPOINTMENTS);
+        }
+        if (inserted.contains(Room.class)){
+            types.add(ChangeVersions.Type.ROOMS);
+        }
+        if (inserted.contains(Doctor.class)){
+            types.add(ChangeVersions.Type.DOCTORS);
+        }
+        if (inserted.contains(Patient.class)){
+            types.add(ChangeVersions.Type.PATIENTS);
+        }
+        return types.toArray(new ChangeVersions.Type[0]);
     }
 
+    /** Appointments embed their patient, doctor and room, so their tag covers every type. */
+    private String etag(){
+        return changeVersions.etag(ChangeVersions.Type.values());
+    }
 
     @DeleteMapping("/appointments/{id}")
     public ResponseEntity<HttpStatus> deleteAppointment(@PathVariable("id") long id){
 
-        Optional<Appointment> appointment = appointmentRepository.findById(id);
+        return optimisticRetryTemplate.execute(context -> {
+            Optional<Appointment> appointment = appointmentRepository.findById(id);
 
-        if (!appointment.isPresent()){
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+            if (!appointment.isPresent()){
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
 
-        appointmentRepository.deleteById(id);
+            appointmentRepository.delete(appointment.get());
+            appointmentIndex.remove(id);
+            changeVersions.changed(ChangeVersions.Type.APPOINTMENTS);
 
-        return new ResponseEntity<>(HttpStatus.OK);
-        
+            return new ResponseEntity<>(HttpStatus.OK);
+        });
     }
 
     @DeleteMapping("/appointments")
     public ResponseEntity<HttpStatus> deleteAllAppointments(){
-        appointmentRepository.deleteAll();
+        bookingService.deleteAll();
+        appointmentIndex.clear();
+        changeVersions.changed(ChangeVersions.Type.APPOINTMENTS);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
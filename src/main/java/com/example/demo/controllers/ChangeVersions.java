@@ -0,0 +1,121 @@
+package com.example.demo.controllers;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.ChangeVersion;
+import com.example.demo.repositories.ChangeVersionRepository;
+
+/**
+ * Change counter per entity type, bumped by the controllers after every committed
+ * save or delete, and turned into strong ETags for the GET endpoints. Tags are answered
+ * from memory, so an unchanged poll runs no SQL.
+ *
+ * The shared counts are rows of the change_version table. Every etag.refresh-ms this
+ * instance adds its own changes since the last refresh to them, one update per changed
+ * type, and reads them back. A write through this instance changes its tags at once; a
+ * write through another instance shows up here within two refresh intervals, one until
+ * that instance adds it to the table and one until this instance reads it.
+ *
+ * Counters are bumped after the write commits and read before the data, so a response
+ * is never tagged with a version newer than its body. Changes not yet in the table
+ * only count on the instance that made them, so while any are pending a tag also names
+ * the instance: two instances each with one change of their own then tag their
+ * different bodies differently, rather than both with the next shared count.
+ */
+@Component
+public class ChangeVersions {
+
+    public enum Type { APPOINTMENTS, DOCTORS, PATIENTS, ROOMS }
+
+    @Autowired
+    ChangeVersionRepository changeVersionRepository;
+
+    /** Counts of the table as last read. */
+    private final Map<Type, Long> loaded = new EnumMap<>(Type.class);
+
+    /** Changes made through this instance and not yet added to the table. */
+    private final Map<Type, Long> pending = new EnumMap<>(Type.class);
+
+    /** Random per start, so a restarted instance does not reuse the tags of its pending changes. */
+    private final String instance = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    /** Held by refresh(), so no pending change is added twice. */
+    private final Object refreshing = new Object();
+
+    /** Creates the missing counters, tolerating another instance starting at the same time. */
+    @PostConstruct
+    void createCounters(){
+        for (Type type : Type.values()){
+            if (!changeVersionRepository.existsById(type.name())){
+                try {
+                    changeVersionRepository.saveAndFlush(new ChangeVersion(type.name(), 0));
+                } catch (DataIntegrityViolationException e){
+                    // Created concurrently
+                }
+            }
+        }
+        refresh();
+    }
+
+    public synchronized void changed(Type... types){
+        for (Type type : types){
+            pending.merge(type, 1L, Long::sum);
+        }
+    }
+
+    public synchronized long version(Type type){
+        return loaded.getOrDefault(type, 0L) + pending.getOrDefault(type, 0L);
+    }
+
+    /** The shared counts, followed by this instance's pending changes and its id when there are any. */
+    public synchronized String etag(Type... types){
+        StringBuilder etag = new StringBuilder().append('"').append('v');
+        boolean local = false;
+        for (Type type : types){
+            etag.append('-').append(loaded.getOrDefault(type, 0L));
+            long changes = pending.getOrDefault(type, 0L);
+            if (changes != 0){
+                etag.append('.').append(changes);
+                local = true;
+            }
+        }
+        if (local){
+            etag.append('@').append(instance);
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Adds the pending changes to the table and reads back every instance's. The added
+     * changes stay pending until the read is in, so versions never go backwards.
+     */
+    @Scheduled(fixedDelayString = "${etag.refresh-ms:1000}", initialDelayString = "${etag.refresh-ms:1000}")
+    public void refresh(){
+        synchronized (refreshing){
+            Map<Type, Long> adding;
+            synchronized (this){
+                adding = new EnumMap<>(pending);
+            }
+            adding.forEach((type, changes) -> changeVersionRepository.add(type.name(), changes));
+
+            Map<Type, Long> read = new EnumMap<>(Type.class);
+            for (ChangeVersion version : changeVersionRepository.findAll()){
+                read.put(Type.valueOf(version.getName()), version.getChanges());
+            }
+            synchronized (this){
+                adding.forEach((type, changes) -> pending.merge(type, -changes, Long::sum));
+                loaded.clear();
+                loaded.putAll(read);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.controllers;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/** A version conflict still there after the retries is the client's to resolve, not a server error. */
+@RestControllerAdvice
+public class ConflictHandler {
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<HttpStatus> versionConflict(){
+        return new ResponseEntity<>(HttpStatus.CONFLICT);
+    }
+}
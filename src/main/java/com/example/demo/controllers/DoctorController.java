@@ -2,6 +2,7 @@ package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
 import com.example.demo.entities.Doctor;
+import com.example.demo.views.PersonView;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -10,13 +11,16 @@ import java.util.Optional;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 
 @RestController
@@ -26,11 +30,27 @@ public class DoctorController {
     @Autowired
     DoctorRepository doctorRepository;
 
+    @Autowired
+    RetryTemplate optimisticRetryTemplate;
+
+    @Autowired
+    ChangeVersions changeVersions;
+
     @GetMapping("/doctors")
-    public ResponseEntity<List<Doctor>> getAllDoctors(){
-        List<Doctor> doctors = new ArrayList<>();
+    public ResponseEntity<List<PersonView>> getAllDoctors(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "after", required = false) String after,
+            WebRequest request){
+        if (request.checkNotModified(changeVersions.etag(ChangeVersions.Type.DOCTORS))){
+            return null;
+        }
+        if (limit != null || after != null){
+            return getDoctorsPage(limit == null ? PageCursor.DEFAULT_LIMIT : limit, after);
+        }
+
+        List<PersonView> doctors = new ArrayList<>();
 
-        doctorRepository.findAll().forEach(doctors::add);
+        doctorRepository.findAllViews().forEach(doctors::add);
 
         if (doctors.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -39,8 +59,27 @@ public class DoctorController {
         return new ResponseEntity<>(doctors, HttpStatus.OK);
     }
 
+    private ResponseEntity<List<PersonView>> getDoctorsPage(int limit, String after){
+        if (!PageCursor.isValidLimit(limit)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        long afterId;
+        try {
+            afterId = after == null ? Long.MIN_VALUE : Long.parseLong(PageCursor.decode(after));
+        } catch (IllegalArgumentException e){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<PersonView> doctors = doctorRepository.findPageAfter(afterId, PageCursor.firstRows(limit));
+        return PageCursor.page(doctors, limit, doctor -> String.valueOf(doctor.getId()));
+    }
+
     @GetMapping("/doctors/{id}")
-    public ResponseEntity<Doctor> getDoctorById(@PathVariable("id") long id){
+    public ResponseEntity<Doctor> getDoctorById(@PathVariable("id") long id, WebRequest request){
+        if (request.checkNotModified(changeVersions.etag(ChangeVersions.Type.DOCTORS))){
+            return null;
+        }
         Optional<Doctor> doctor = doctorRepository.findById(id);
         if (! doctor.isPresent()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -53,24 +92,29 @@ public class DoctorController {
     public ResponseEntity<Doctor> createDoctor(@RequestBody Doctor doc){
         Doctor d = new Doctor(doc.getFirstName(), doc.getLastName(), doc.getAge(), doc.getEmail());
         doctorRepository.save(d);
+        changeVersions.changed(ChangeVersions.Type.DOCTORS);
         return new ResponseEntity<>(d, HttpStatus.CREATED);
     }
 
     @DeleteMapping("/doctors/{id}")
     public ResponseEntity<HttpStatus> deleteDoctor(@PathVariable("id") long id){
-        Optional<Doctor> doctor = doctorRepository.findById(id);
+        return optimisticRetryTemplate.execute(context -> {
+            Optional<Doctor> doctor = doctorRepository.findById(id);
 
-        if (! doctor.isPresent()){
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+            if (! doctor.isPresent()){
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
 
-        doctorRepository.deleteById(id);
-        return new ResponseEntity<>(HttpStatus.OK);
+            doctorRepository.delete(doctor.get());
+            changeVersions.changed(ChangeVersions.Type.DOCTORS);
+            return new ResponseEntity<>(HttpStatus.OK);
+        });
     }
 
     @DeleteMapping("/doctors")
     public ResponseEntity<HttpStatus> deleteAllDoctors(){
-        doctorRepository.deleteAll();
+        doctorRepository.deleteAllInBatch();
+        changeVersions.changed(ChangeVersions.Type.DOCTORS);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
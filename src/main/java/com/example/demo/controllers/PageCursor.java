@@ -0,0 +1,59 @@
+package com.example.demo.controllers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Keyset pagination helpers shared by the list endpoints. The "after" token is the
+ * sort key of the last row of the previous page, so every page is a single index
+ * seek regardless of how deep the client goes.
+ */
+final class PageCursor {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private PageCursor(){
+    }
+
+    static String encode(String key){
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @throws IllegalArgumentException if the token was not produced by {@link #encode} */
+    static String decode(String token){
+        return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    }
+
+    static boolean isValidLimit(int limit){
+        return limit > 0;
+    }
+
+    static PageRequest firstRows(int limit){
+        return PageRequest.of(0, Math.min(limit, MAX_LIMIT));
+    }
+
+    static <T> ResponseEntity<List<T>> page(List<T> rows, int limit, Function<T, String> keyOf){
+        if (rows.isEmpty()){
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (rows.size() >= Math.min(limit, MAX_LIMIT)){
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("limit", Math.min(limit, MAX_LIMIT))
+                .replaceQueryParam("after", encode(keyOf.apply(rows.get(rows.size() - 1))))
+                .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return new ResponseEntity<>(rows, headers, HttpStatus.OK);
+    }
+}
@@ -3,6 +3,7 @@ package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
 import com.example.demo.entities.Patient;
+import com.example.demo.views.PersonView;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,13 +12,16 @@ import java.util.Optional;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 
 @RestController
@@ -27,11 +31,27 @@ public class PatientController {
     @Autowired
     PatientRepository patientRepository;
 
+    @Autowired
+    RetryTemplate optimisticRetryTemplate;
+
+    @Autowired
+    ChangeVersions changeVersions;
+
     @GetMapping("/patients")
-    public ResponseEntity<List<Patient>> getAllPatients(){
-        List<Patient> patients = new ArrayList<>();
+    public ResponseEntity<List<PersonView>> getAllPatients(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "after", required = false) String after,
+            WebRequest request){
+        if (request.checkNotModified(changeVersions.etag(ChangeVersions.Type.PATIENTS))){
+            return null;
+        }
+        if (limit != null || after != null){
+            return getPatientsPage(limit == null ? PageCursor.DEFAULT_LIMIT : limit, after);
+        }
+
+        List<PersonView> patients = new ArrayList<>();
 
-        patientRepository.findAll().forEach(patients::add);
+        patientRepository.findAllViews().forEach(patients::add);
 
         if (patients.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -40,8 +60,27 @@ public class PatientController {
         return new ResponseEntity<>(patients, HttpStatus.OK);
     }
 
+    private ResponseEntity<List<PersonView>> getPatientsPage(int limit, String after){
+        if (!PageCursor.isValidLimit(limit)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        long afterId;
+        try {
+            afterId = after == null ? Long.MIN_VALUE : Long.parseLong(PageCursor.decode(after));
+        } catch (IllegalArgumentException e){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<PersonView> patients = patientRepository.findPageAfter(afterId, PageCursor.firstRows(limit));
+        return PageCursor.page(patients, limit, patient -> String.valueOf(patient.getId()));
+    }
+
     @GetMapping("/patients/{id}")
-    public ResponseEntity<Patient> getPatientById(@PathVariable("id") long id){
+    public ResponseEntity<Patient> getPatientById(@PathVariable("id") long id, WebRequest request){
+        if (request.checkNotModified(changeVersions.etag(ChangeVersions.Type.PATIENTS))){
+            return null;
+        }
         Optional<Patient> patient = patientRepository.findById(id);
         if (! patient.isPresent()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -53,22 +92,27 @@ public class PatientController {
     public ResponseEntity<Patient> createPatient(@RequestBody Patient pat){
         Patient d = new Patient(pat.getFirstName(), pat.getLastName(), pat.getAge(), pat.getEmail());
         patientRepository.save(d);
+        changeVersions.changed(ChangeVersions.Type.PATIENTS);
         return new ResponseEntity<>(d, HttpStatus.CREATED);
     }
 
     @DeleteMapping("/patients/{id}")
     public ResponseEntity<HttpStatus> deletePatient(@PathVariable("id") long id){
-        Optional<Patient> patient = patientRepository.findById(id);
-        if (! patient.isPresent()){
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        patientRepository.deleteById(id);
-        return new ResponseEntity<>(HttpStatus.OK);
+        return optimisticRetryTemplate.execute(context -> {
+            Optional<Patient> patient = patientRepository.findById(id);
+            if (! patient.isPresent()){
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            patientRepository.delete(patient.get());
+            changeVersions.changed(ChangeVersions.Type.PATIENTS);
+            return new ResponseEntity<>(HttpStatus.OK);
+        });
     }
 
     @DeleteMapping("/patients")
     public ResponseEntity<HttpStatus> deleteAllPatients(){
-        patientRepository.deleteAll();
+        patientRepository.deleteAllInBatch();
+        changeVersions.changed(ChangeVersions.Type.PATIENTS);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -3,6 +3,7 @@ package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
 import com.example.demo.entities.Room;
+import com.example.demo.views.RoomView;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,13 +12,16 @@ import java.util.Optional;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 
 @RestController
@@ -27,11 +31,27 @@ public class RoomController {
     @Autowired
     RoomRepository roomRepository;
 
+    @Autowired
+    RetryTemplate optimisticRetryTemplate;
+
+    @Autowired
+    ChangeVersions changeVersions;
+
     @GetMapping("/rooms")
-    public ResponseEntity<List<Room>> getAllRooms(){
-        List<Room> rooms = new ArrayList<>();
+    public ResponseEntity<List<RoomView>> getAllRooms(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "after", required = false) String after,
+            WebRequest request){
+        if (request.checkNotModified(changeVersions.etag(ChangeVersions.Type.ROOMS))){
+            return null;
+        }
+        if (limit != null || after != null){
+            return getRoomsPage(limit == null ? PageCursor.DEFAULT_LIMIT : limit, after);
+        }
+
+        List<RoomView> rooms = new ArrayList<>();
 
-        roomRepository.findAll().forEach(rooms::add);
+        roomRepository.findAllViews().forEach(rooms::add);
 
         if (rooms.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -40,8 +60,27 @@ public class RoomController {
         return new ResponseEntity<>(rooms, HttpStatus.OK);
     }
 
+    private ResponseEntity<List<RoomView>> getRoomsPage(int limit, String after){
+        if (!PageCursor.isValidLimit(limit)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        String afterName;
+        try {
+            afterName = after == null ? "" : PageCursor.decode(after);
+        } catch (IllegalArgumentException e){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<RoomView> rooms = roomRepository.findPageAfter(afterName, PageCursor.firstRows(limit));
+        return PageCursor.page(rooms, limit, RoomView::getRoomName);
+    }
+
     @GetMapping("/rooms/{roomName}")
-    public ResponseEntity<Room> getRoomByRoomName(@PathVariable("roomName") String roomName){
+    public ResponseEntity<Room> getRoomByRoomName(@PathVariable("roomName") String roomName, WebRequest request){
+        if (request.checkNotModified(changeVersions.etag(ChangeVersions.Type.ROOMS))){
+            return null;
+        }
         Optional<Room> room = roomRepository.findByRoomName(roomName);
         if (!room.isPresent()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -53,22 +92,27 @@ public class RoomController {
     public ResponseEntity<Room> createRoom(@RequestBody Room room){
         Room tmp = new Room(room.getRoomName());
         roomRepository.save(tmp);
+        changeVersions.changed(ChangeVersions.Type.ROOMS);
         return new ResponseEntity<>(tmp, HttpStatus.CREATED);
     }
 
     @DeleteMapping("/rooms/{roomName}")
     public ResponseEntity<HttpStatus> deleteRoom(@PathVariable("roomName") String roomName){
-        Optional<Room> room = roomRepository.findByRoomName(roomName);
-        if (! room.isPresent()){
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        roomRepository.deleteByRoomName(roomName);
-        return new ResponseEntity<>(HttpStatus.OK);
+        return optimisticRetryTemplate.execute(context -> {
+            Optional<Room> room = roomRepository.findByRoomName(roomName);
+            if (! room.isPresent()){
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            roomRepository.delete(room.get());
+            changeVersions.changed(ChangeVersions.Type.ROOMS);
+            return new ResponseEntity<>(HttpStatus.OK);
+        });
     }
 
     @DeleteMapping("/rooms")
     public ResponseEntity<HttpStatus> deleteAllRooms(){
-        roomRepository.deleteAll();
+        roomRepository.deleteAllInBatch();
+        changeVersions.changed(ChangeVersions.Type.ROOMS);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -6,25 +6,48 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.*;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_appointment_room_time", columnList = "room_id, startsAt, finishesAt"),
+    @Index(name = "idx_appointment_doctor_time", columnList = "doctor_id, startsAt, finishesAt"),
+    @Index(name = "idx_appointment_patient_time", columnList = "patient_id, startsAt, finishesAt"),
+    @Index(name = "idx_appointment_starts", columnList = "startsAt, id")
+})
+@NamedEntityGraph(name = Appointment.WITH_PARTICIPANTS, attributeNodes = {
+    @NamedAttributeNode("patient"), @NamedAttributeNode("doctor"), @NamedAttributeNode("room")
+})
 public class Appointment {
 
+    /** Loads patient, doctor and room in the same select, avoiding one query per association. */
+    public static final String WITH_PARTICIPANTS = "Appointment.withParticipants";
+
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(strategy=GenerationType.SEQUENCE, generator="appointment_seq")
+    @GenericGenerator(name="appointment_seq", strategy="com.example.demo.entities.PooledSequenceGenerator",
+        parameters=@Parameter(name="sequence_name", value="appointment_seq"))
     private long id;
 
+    @JsonIgnore
+    @Version
+    private long version;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    // New participants are saved with the appointment, but outlive it: they may be
+    // shared with other appointments or have been registered on their own.
+    @ManyToOne(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinColumn(name = "patient_id", referencedColumnName = "id")
     private Patient patient;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinColumn(name = "doctor_id", referencedColumnName = "id")
     private Doctor doctor;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinColumn(name = "room_id", referencedColumnName = "roomName")
     private Room room;
 
@@ -53,6 +76,13 @@ public class Appointment {
     public void setId(long id){
         this.id = id;
     }
+
+    public long getVersion(){
+        return this.version;
+    }
+    public void setVersion(long version){
+        this.version = version;
+    }
     
     public LocalDateTime getStartsAt(){
         return this.startsAt;
@@ -89,26 +119,82 @@ public class Appointment {
         this.room = room;
     }
     
+    /**
+     * Copy of the appointment and its participants as they were sent, for booking attempts
+     * that may be retried: a rolled back attempt leaves generated ids and managed rows behind.
+     */
+    public Appointment copy(){
+        Appointment copy = new Appointment(copy(this.patient), copy(this.doctor), copy(this.room), this.startsAt, this.finishesAt);
+        copy.setId(this.id);
+        copy.setVersion(this.version);
+        return copy;
+    }
+
+    private static Patient copy(Patient patient){
+        if (patient == null){
+            return null;
+        }
+        Patient copy = new Patient(patient.getFirstName(), patient.getLastName(), patient.getAge(), patient.getEmail());
+        copy.setId(patient.getId());
+        copy.setVersion(patient.getVersion());
+        return copy;
+    }
+
+    private static Doctor copy(Doctor doctor){
+        if (doctor == null){
+            return null;
+        }
+        Doctor copy = new Doctor(doctor.getFirstName(), doctor.getLastName(), doctor.getAge(), doctor.getEmail());
+        copy.setId(doctor.getId());
+        copy.setVersion(doctor.getVersion());
+        return copy;
+    }
+
+    private static Room copy(Room room){
+        if (room == null){
+            return null;
+        }
+        Room copy = new Room(room.getRoomName());
+        copy.setVersion(room.getVersion());
+        return copy;
+    }
+
     public boolean overlaps( Appointment appointment){
+        return sharesResourceWith(appointment) && overlapsInTime(appointment);
+    }
+
+    public boolean sharesResourceWith(Appointment appointment){
+        // Same room, or the same already persisted doctor or patient.
+        // Doctors and patients without an id are new and cannot be booked elsewhere yet.
+        if (this.getRoom() != null && appointment.getRoom() != null &&
+                this.getRoom().getRoomName().equals(appointment.getRoom().getRoomName())){
+            return true;
+        }
+        if (this.getDoctor() != null && appointment.getDoctor() != null &&
+                this.getDoctor().getId() != 0 && this.getDoctor().getId() == appointment.getDoctor().getId()){
+            return true;
+        }
+        return this.getPatient() != null && appointment.getPatient() != null &&
+                this.getPatient().getId() != 0 && this.getPatient().getId() == appointment.getPatient().getId();
+    }
+
+    private boolean overlapsInTime(Appointment appointment){
         /// True when:
         // Case 1: A.starts == B.starts
         // Case 2: A.finishes == B.finishes 
         // Case 3: A.starts < B.finishes && B.finishes < A.finishes
         // Case 4: B.starts < A.starts && A.finishes < B.finishes
-        if (appointment.getRoom().getRoomName().equals(this.getRoom().getRoomName())){ 
-            if (this.getStartsAt().equals(appointment.getStartsAt()) || 
-                    appointment.getFinishesAt().equals(this.getFinishesAt())){
-                return true;
-                    }
-            if (appointment.getFinishesAt().isAfter(this.getStartsAt()) && appointment.getFinishesAt().isBefore(this.getFinishesAt())){
-                return true;
-            }
-            if ( appointment.getStartsAt().isAfter(this.getStartsAt()) && appointment.getStartsAt().isBefore(this.getFinishesAt())){
-                return true;
-            }
+        if (this.getStartsAt().equals(appointment.getStartsAt()) || 
+                appointment.getFinishesAt().equals(this.getFinishesAt())){
+            return true;
+        }
+        if (appointment.getFinishesAt().isAfter(this.getStartsAt()) && appointment.getFinishesAt().isBefore(this.getFinishesAt())){
+            return true;
+        }
+        if ( appointment.getStartsAt().isAfter(this.getStartsAt()) && appointment.getStartsAt().isBefore(this.getFinishesAt())){
+            return true;
         }
-        
-        return false;
+        return appointment.getStartsAt().isBefore(this.getStartsAt()) && this.getFinishesAt().isBefore(appointment.getFinishesAt());
     }
 
 }
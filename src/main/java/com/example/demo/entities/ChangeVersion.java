@@ -0,0 +1,31 @@
+package com.example.demo.entities;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/** Number of committed writes to one entity type, shared by every instance through the database. */
+@Entity
+public class ChangeVersion {
+
+    @Id
+    private String name;
+
+    private long changes;
+
+    public ChangeVersion(){
+        super();
+    }
+
+    public ChangeVersion(String name, long changes){
+        this.name = name;
+        this.changes = changes;
+    }
+
+    public String getName(){
+        return this.name;
+    }
+
+    public long getChanges(){
+        return this.changes;
+    }
+}
@@ -2,12 +2,21 @@ package com.example.demo.entities;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name="doctors")
 public class Doctor extends Person {
 
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(strategy=GenerationType.SEQUENCE, generator="doctors_seq")
+    @GenericGenerator(name="doctors_seq", strategy="com.example.demo.entities.PooledSequenceGenerator",
+        parameters=@Parameter(name="sequence_name", value="doctors_seq"))
     private long id;
  
     public Doctor() {
@@ -1,6 +1,9 @@
 package com.example.demo.entities;
 
 import javax.persistence.MappedSuperclass;
+import javax.persistence.Version;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @MappedSuperclass
 public class Person {
@@ -8,6 +11,11 @@ public class Person {
     private String lastName;
     private int age;
     private String email;
+
+    // Only guards concurrent writes, clients never see or send it
+    @JsonIgnore
+    @Version
+    private long version;
     
     public Person(){
         super();
@@ -42,6 +50,13 @@ public class Person {
         this.age = age;
     }
 
+    public long getVersion(){
+        return this.version;
+    }
+    public void setVersion(long version){
+        this.version = version;
+    }
+
     public String getEmail(){
         return this.email;
     }
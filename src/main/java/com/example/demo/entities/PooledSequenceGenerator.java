@@ -0,0 +1,77 @@
+package com.example.demo.entities;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Per-entity sequence handing out ids in blocks, so only one insert in every
+ * allocation size needs a round trip to the sequence. Databases without sequences,
+ * like MySQL, get one small table per entity instead of the shared hibernate_sequence.
+ *
+ * The block size and first value come from the Hibernate settings below, which can
+ * be set with spring.jpa.properties. Without a first value, the sequence starts above
+ * the largest id already in the entity's table, so databases that used the shared
+ * hibernate_sequence keep working when schema update creates the new sequences.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE = "demo.id.allocation_size";
+    public static final String INITIAL_VALUE = "demo.id.initial_value";
+
+    public static final String DEFAULT_ALLOCATION_SIZE = "50";
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+
+        if (settings.containsKey(ALLOCATION_SIZE)){
+            params.setProperty(INCREMENT_PARAM, String.valueOf(settings.get(ALLOCATION_SIZE)));
+        }
+        params.putIfAbsent(INCREMENT_PARAM, DEFAULT_ALLOCATION_SIZE);
+        if (settings.containsKey(INITIAL_VALUE)){
+            params.setProperty(INITIAL_PARAM, String.valueOf(settings.get(INITIAL_VALUE)));
+        } else {
+            long maxId = maxId(params, serviceRegistry);
+            if (maxId > 0){
+                params.setProperty(INITIAL_PARAM, String.valueOf(maxId + 1));
+            }
+        }
+        params.putIfAbsent(OPT_PARAM, "pooled-lo");
+
+        super.configure(type, params, serviceRegistry);
+    }
+
+    /** Largest id in the entity's table, 0 when it is empty or does not exist yet. */
+    private static long maxId(Properties params, ServiceRegistry serviceRegistry){
+        String table = params.getProperty(PersistentIdentifierGenerator.TABLE);
+        String column = params.getProperty(PersistentIdentifierGenerator.PK);
+        ConnectionProvider connections = serviceRegistry.getService(ConnectionProvider.class);
+        if (table == null || column == null || connections == null){
+            return 0;
+        }
+        try {
+            Connection connection = connections.getConnection();
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery("select max(" + column + ") from " + table)){
+                return result.next() ? result.getLong(1) : 0;
+            } finally {
+                connections.closeConnection(connection);
+            }
+        } catch (SQLException e){
+            // A new database, the table is created along with the sequence
+            return 0;
+        }
+    }
+}
@@ -1,14 +1,27 @@
 package com.example.demo.entities;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Room {
 
     @Id
     private String roomName;
 
+    @JsonIgnore
+    @Version
+    private long version;
+
     public Room(){
         super();
     }
@@ -23,4 +36,11 @@ public class Room {
         return this.roomName;
     }
 
+    public long getVersion(){
+        return this.version;
+    }
+    public void setVersion(long version){
+        this.version = version;
+    }
+
 }
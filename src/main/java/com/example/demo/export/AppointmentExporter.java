@@ -0,0 +1,83 @@
+package com.example.demo.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entities.Appointment;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes every appointment as newline-delimited JSON while reading it from a
+ * streamed query, clearing the persistence context every chunk so that memory
+ * stays flat regardless of the table size. export.chunk-size is also the JDBC
+ * fetch size of the query.
+ */
+@Component
+public class AppointmentExporter {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${export.chunk-size:500}")
+    int chunkSize;
+
+    @Transactional(readOnly = true)
+    public void writeNdjson(OutputStream out) throws IOException {
+        // One row per line: the separator replaces Jackson's default root separator of
+        // a space, and flushing is left to the chunks below
+        ObjectWriter writer = objectMapper.writer()
+            .withRootValueSeparator("\n")
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        long written = 0;
+        try (Stream<Appointment> appointments = streamAll();
+             SequenceWriter lines = writer.writeValues(out)){
+            Iterator<Appointment> rows = appointments.iterator();
+            while (rows.hasNext()){
+                lines.write(rows.next());
+                written++;
+
+                // Flush the first row right away so the client gets its first byte early
+                if (written == 1 || written % chunkSize == 0){
+                    lines.flush();
+                }
+                if (written % chunkSize == 0){
+                    entityManager.clear();
+                }
+            }
+        }
+        // The separator only goes between rows, end the last one too
+        if (written > 0){
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /** Every appointment with its participants, fetched from the driver one chunk at a time. */
+    private Stream<Appointment> streamAll(){
+        return entityManager.createQuery(
+                "select a from Appointment a left join fetch a.patient left join fetch a.doctor left join fetch a.room",
+                Appointment.class)
+            .setHint(QueryHints.HINT_FETCH_SIZE, chunkSize)
+            .getResultStream();
+    }
+}
@@ -1,14 +1,98 @@
 
 package com.example.demo.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import com.example.demo.entities.Appointment;
+import com.example.demo.scheduling.BookedSlot;
+import com.example.demo.views.AppointmentView;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+    @EntityGraph(Appointment.WITH_PARTICIPANTS)
     List<Appointment> findAll();
     Appointment save(Appointment appointment);
     void delete(Appointment appointment);
+
+    // List views: constructor rows straight from the result set, nothing is attached to the persistence context
+    String VIEW = "select new com.example.demo.views.AppointmentView(a.id, a.startsAt, a.finishesAt, " +
+                  "p.id, p.firstName, p.lastName, p.age, p.email, " +
+                  "d.id, d.firstName, d.lastName, d.age, d.email, r.roomName) " +
+                  "from Appointment a left join a.patient p left join a.doctor d left join a.room r ";
+
+    @Query(VIEW)
+    List<AppointmentView> findAllViews();
+
+    @Query(VIEW + "order by a.startsAt, a.id")
+    List<AppointmentView> findFirstPage(Pageable pageable);
+
+    @Query(VIEW + "where a.startsAt > :startsAt or (a.startsAt = :startsAt and a.id > :id) order by a.startsAt, a.id")
+    List<AppointmentView> findPageAfter(@Param("startsAt") LocalDateTime startsAt, @Param("id") long id, Pageable pageable);
+
+    @Query("select new com.example.demo.scheduling.BookedSlot(a.id, r.roomName, d.id, p.id, a.startsAt, a.finishesAt) " +
+           "from Appointment a left join a.room r left join a.doctor d left join a.patient p")
+    List<BookedSlot> findAllSlots();
+
+    @Query("select new com.example.demo.scheduling.BookedSlot(a.id, r.roomName, d.id, p.id, a.startsAt, a.finishesAt) " +
+           "from Appointment a left join a.room r left join a.doctor d left join a.patient p " +
+           "where a.startsAt < :finishesAt and a.finishesAt > :startsAt " +
+           "and (r.roomName in :roomNames or d.id in :doctorIds or p.id in :patientIds)")
+    List<BookedSlot> findSlotsOverlapping(@Param("roomNames") Collection<String> roomNames, @Param("doctorIds") Collection<Long> doctorIds,
+                                          @Param("patientIds") Collection<Long> patientIds,
+                                          @Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt);
+
+    /** Longest appointment in seconds, 0 when there are none. TIMESTAMPDIFF reads the same on MySQL and H2. */
+    @Query(value = "select coalesce(max(timestampdiff(SECOND, starts_at, finishes_at)), 0) from appointment", nativeQuery = true)
+    long findLongestSeconds();
+
+    // Window reads: the lower bound on startsAt, from minus the longest appointment, keeps
+    // the index range scan inside the window
+    @Query("select a from Appointment a left join fetch a.patient left join fetch a.doctor left join fetch a.room " +
+           "where a.room.roomName = :roomName and a.startsAt >= :earliestStart and a.startsAt < :finishesAt and a.finishesAt > :startsAt " +
+           "order by a.startsAt, a.id")
+    List<Appointment> findInRoomWindow(@Param("roomName") String roomName, @Param("earliestStart") LocalDateTime earliestStart,
+                                       @Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt);
+
+    @Query("select a from Appointment a left join fetch a.patient left join fetch a.doctor left join fetch a.room " +
+           "where a.doctor.id = :doctorId and a.startsAt >= :earliestStart and a.startsAt < :finishesAt and a.finishesAt > :startsAt " +
+           "order by a.startsAt, a.id")
+    List<Appointment> findForDoctorWindow(@Param("doctorId") long doctorId, @Param("earliestStart") LocalDateTime earliestStart,
+                                          @Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt);
+
+    @Query("select a from Appointment a left join fetch a.patient left join fetch a.doctor left join fetch a.room " +
+           "where a.patient.id = :patientId and a.startsAt >= :earliestStart and a.startsAt < :finishesAt and a.finishesAt > :startsAt " +
+           "order by a.startsAt, a.id")
+    List<Appointment> findForPatientWindow(@Param("patientId") long patientId, @Param("earliestStart") LocalDateTime earliestStart,
+                                           @Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt);
+
+    // Same windows as times only, for the free slot search: foreign key columns, no joins, no entities
+    String SLOT = "select new com.example.demo.scheduling.BookedSlot(a.id, a.room.roomName, a.doctor.id, a.patient.id, " +
+                  "a.startsAt, a.finishesAt) from Appointment a ";
+
+    @Query(SLOT + "where a.room.roomName = :roomName and a.startsAt >= :earliestStart and a.startsAt < :finishesAt " +
+           "and a.finishesAt > :startsAt order by a.startsAt, a.id")
+    List<BookedSlot> findSlotsInRoomWindow(@Param("roomName") String roomName, @Param("earliestStart") LocalDateTime earliestStart,
+                                           @Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt);
+
+    @Query(SLOT + "where a.doctor.id = :doctorId and a.startsAt >= :earliestStart and a.startsAt < :finishesAt " +
+           "and a.finishesAt > :startsAt order by a.startsAt, a.id")
+    List<BookedSlot> findSlotsForDoctorWindow(@Param("doctorId") long doctorId, @Param("earliestStart") LocalDateTime earliestStart,
+                                              @Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt);
+
+    // Conflict checks only need to know whether a row exists: no entity, no participants
+    @Query("select count(a) from Appointment a where a.room.roomName = :roomName and a.startsAt < :finishesAt and a.finishesAt > :startsAt")
+    long countOverlappingInRoom(@Param("roomName") String roomName, @Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt);
+
+    @Query("select count(a) from Appointment a where a.doctor.id = :doctorId and a.startsAt < :finishesAt and a.finishesAt > :startsAt")
+    long countOverlappingForDoctor(@Param("doctorId") long doctorId, @Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt);
+
+    @Query("select count(a) from Appointment a where a.patient.id = :patientId and a.startsAt < :finishesAt and a.finishesAt > :startsAt")
+    long countOverlappingForPatient(@Param("patientId") long patientId, @Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt);
 }
@@ -0,0 +1,18 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.ChangeVersion;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ChangeVersionRepository extends JpaRepository<ChangeVersion, String> {
+
+    /** Atomic in the database, so concurrent writers on any instance never lose a change. */
+    @Transactional
+    @Modifying
+    @Query("update ChangeVersion c set c.changes = c.changes + :changes where c.name = :name")
+    int add(@Param("name") String name, @Param("changes") long changes);
+}
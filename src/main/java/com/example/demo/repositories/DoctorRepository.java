@@ -1,13 +1,36 @@
 package com.example.demo.repositories;
 
 import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 
 import com.example.demo.entities.Doctor;
+import com.example.demo.views.PersonView;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     List<Doctor> findAll();
     Doctor save(Doctor doc);
     void delete(Doctor doc);
+
+    String VIEW = "select new com.example.demo.views.PersonView(d.id, d.firstName, d.lastName, d.age, d.email) from Doctor d ";
+
+    @Query(VIEW)
+    List<PersonView> findAllViews();
+
+    @Query(VIEW + "where d.id > :after order by d.id")
+    List<PersonView> findPageAfter(@Param("after") long after, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "3000"))
+    @Query("select d from Doctor d where d.id = :id")
+    Optional<Doctor> findByIdForUpdate(@Param("id") long id);
 }
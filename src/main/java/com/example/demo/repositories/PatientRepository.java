@@ -2,13 +2,36 @@
 package com.example.demo.repositories;
 
 import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 
 import com.example.demo.entities.Patient;
+import com.example.demo.views.PersonView;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 public interface PatientRepository extends JpaRepository<Patient, Long> {
     List<Patient> findAll();
     Patient save(Patient doc);
     void delete(Patient doc);
+
+    String VIEW = "select new com.example.demo.views.PersonView(p.id, p.firstName, p.lastName, p.age, p.email) from Patient p ";
+
+    @Query(VIEW)
+    List<PersonView> findAllViews();
+
+    @Query(VIEW + "where p.id > :after order by p.id")
+    List<PersonView> findPageAfter(@Param("after") long after, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "3000"))
+    @Query("select p from Patient p where p.id = :id")
+    Optional<Patient> findByIdForUpdate(@Param("id") long id);
 }
@@ -4,14 +4,40 @@ package com.example.demo.repositories;
 import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
 import com.example.demo.entities.Room;
+import com.example.demo.views.RoomView;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface RoomRepository extends JpaRepository<Room, Long> {
+public interface RoomRepository extends JpaRepository<Room, String> {
     List<Room> findAll();
-    Optional<Room> findByRoomName(String roomName);
+
+    /** By primary key, so that lookups are served from the second-level cache. */
+    default Optional<Room> findByRoomName(String roomName){
+        return findById(roomName);
+    }
+
     Room save(Room room);
     void delete(Room room);
-    void deleteByRoomName(String roomName);
+
+    String VIEW = "select new com.example.demo.views.RoomView(r.roomName) from Room r ";
+
+    @Query(VIEW)
+    List<RoomView> findAllViews();
+
+    @Query(VIEW + "where r.roomName > :after order by r.roomName")
+    List<RoomView> findPageAfter(@Param("after") String after, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "3000"))
+    @Query("select r from Room r where r.roomName = :roomName")
+    Optional<Room> findByRoomNameForUpdate(@Param("roomName") String roomName);
 }
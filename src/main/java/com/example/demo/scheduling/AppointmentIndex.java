@@ -0,0 +1,287 @@
+package com.example.demo.scheduling;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.repositories.AppointmentRepository;
+
+/**
+ * In-memory interval index of booked appointments, with one {@link IntervalTree} per
+ * room, per doctor and per patient. Loaded from the repository at startup and kept in
+ * sync by the controllers on every save and delete.
+ *
+ * Each room also keeps an {@link OccupancyBitmap}, held with its tree and updated under
+ * the tree's lock, so most room availability checks are a few word masks. clear() and
+ * rebuild() swap in a whole new set of maps, so no reader ever sees half of them.
+ *
+ * The index is local to this instance: bookings and deletes made through other instances
+ * sharing the database only show up after a restart. Bookings therefore use it as a hint
+ * and always decide in the database; the room availability and occupancy endpoints
+ * answer from it as they are.
+ */
+@Component
+public class AppointmentIndex {
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired(required = false)
+    OverlapMetrics overlapMetrics;
+
+    @Value("${booking.occupancy.slot-minutes:15}")
+    int slotMinutes = 15;
+
+    /** Replaced as a whole by clear() and rebuild(), read once per call by everything else. */
+    private volatile Trees trees = new Trees();
+
+    /** Tree and occupancy bitmap of one room, both guarded by the tree's monitor. */
+    private static final class RoomSchedule {
+        final IntervalTree tree = new IntervalTree();
+        final OccupancyBitmap bitmap;
+
+        RoomSchedule(int slotMinutes){
+            this.bitmap = new OccupancyBitmap(slotMinutes);
+        }
+    }
+
+    private static final class Trees {
+        final Map<String, RoomSchedule> rooms = new ConcurrentHashMap<>();
+        final Map<Long, IntervalTree> doctors = new ConcurrentHashMap<>();
+        final Map<Long, IntervalTree> patients = new ConcurrentHashMap<>();
+        final Map<Long, BookedSlot> slots = new ConcurrentHashMap<>();
+    }
+
+    @PostConstruct
+    public void rebuild(){
+        Trees loaded = new Trees();
+        appointmentRepository.findAllSlots().forEach(slot -> add(loaded, slot));
+        trees = loaded;
+    }
+
+    public void clear(){
+        trees = new Trees();
+    }
+
+    public int size(){
+        return trees.slots.size();
+    }
+
+    public void add(Appointment appointment){
+        add(BookedSlot.of(appointment));
+    }
+
+    public void add(BookedSlot slot){
+        add(trees, slot);
+    }
+
+    private void add(Trees trees, BookedSlot slot){
+        BookedSlot previous = trees.slots.put(slot.getId(), slot);
+        if (previous != null){
+            removeFromTrees(trees, previous);
+        }
+        if (slot.getRoomName() != null){
+            addToRoom(trees, slot);
+        }
+        if (slot.getDoctorId() != 0){
+            addTo(trees.doctors, slot.getDoctorId(), slot);
+        }
+        if (slot.getPatientId() != 0){
+            addTo(trees.patients, slot.getPatientId(), slot);
+        }
+    }
+
+    public void remove(long id){
+        Trees trees = this.trees;
+        BookedSlot slot = trees.slots.remove(id);
+        if (slot != null){
+            removeFromTrees(trees, slot);
+        }
+    }
+
+    public boolean overlaps(Appointment appointment){
+        return overlaps(BookedSlot.of(appointment));
+    }
+
+    public boolean overlaps(BookedSlot slot){
+        long started = System.nanoTime();
+        Trees trees = this.trees;
+        Scan scan = new Scan();
+        LocalDateTime from = slot.getStartsAt();
+        LocalDateTime to = slot.getFinishesAt();
+        boolean overlaps = (slot.getRoomName() != null && !isRoomFree(trees, slot.getRoomName(), from, to, scan))
+            || (slot.getDoctorId() != 0 && anyOverlap(trees.doctors, slot.getDoctorId(), from, to, scan))
+            || (slot.getPatientId() != 0 && anyOverlap(trees.patients, slot.getPatientId(), from, to, scan));
+        if (overlapMetrics != null){
+            overlapMetrics.recordIndexCheck(overlaps, scan.candidates, System.nanoTime() - started);
+        }
+        return overlaps;
+    }
+
+    /**
+     * Drops the slots overlapping the given one on its room, doctor or patient. Called
+     * when the database found none of them, so they were deleted through another instance.
+     */
+    public void forgetOverlapping(BookedSlot slot){
+        LocalDateTime from = slot.getStartsAt();
+        LocalDateTime to = slot.getFinishesAt();
+        List<BookedSlot> stale = new ArrayList<>();
+        if (slot.getRoomName() != null){
+            stale.addAll(findInRoom(slot.getRoomName(), from, to));
+        }
+        if (slot.getDoctorId() != 0){
+            stale.addAll(findForDoctor(slot.getDoctorId(), from, to));
+        }
+        if (slot.getPatientId() != 0){
+            stale.addAll(findForPatient(slot.getPatientId(), from, to));
+        }
+        for (BookedSlot found : stale){
+            if (found.getId() != slot.getId()){
+                remove(found.getId());
+            }
+        }
+    }
+
+    /** Answered from the bitmap unless a touched slot is marked, then from the tree. */
+    public boolean isRoomFree(String roomName, LocalDateTime from, LocalDateTime to){
+        return isRoomFree(trees, roomName, from, to, new Scan());
+    }
+
+    /** Booked slots compared while answering one overlap check. */
+    private static final class Scan {
+        int candidates;
+    }
+
+    private static boolean isRoomFree(Trees trees, String roomName, LocalDateTime from, LocalDateTime to, Scan scan){
+        RoomSchedule room = trees.rooms.get(roomName);
+        if (room == null){
+            return true;
+        }
+        synchronized (room.tree){
+            if (room.bitmap.isFree(from, to)){
+                return true;
+            }
+            boolean free = !room.tree.anyOverlap(from, to);
+            scan.candidates += room.tree.lastScanned();
+            return free;
+        }
+    }
+
+    /** Length of the slots of the occupancy bitmaps, in minutes. */
+    public int getSlotMinutes(){
+        return slotMinutes;
+    }
+
+    /** Occupancy words of every room for the day, by room name. */
+    public Map<String, long[]> occupancy(LocalDate day){
+        Map<String, long[]> result = new TreeMap<>();
+        trees.rooms.forEach((roomName, room) -> {
+            synchronized (room.tree){
+                result.put(roomName, room.bitmap.words(day));
+            }
+        });
+        return result;
+    }
+
+    public List<BookedSlot> findInRoom(String roomName, LocalDateTime from, LocalDateTime to){
+        RoomSchedule room = trees.rooms.get(roomName);
+        if (room == null){
+            return Collections.emptyList();
+        }
+        synchronized (room.tree){
+            return room.tree.overlapping(from, to);
+        }
+    }
+
+    public List<BookedSlot> findForDoctor(long doctorId, LocalDateTime from, LocalDateTime to){
+        return find(trees.doctors, doctorId, from, to);
+    }
+
+    public List<BookedSlot> findForPatient(long patientId, LocalDateTime from, LocalDateTime to){
+        return find(trees.patients, patientId, from, to);
+    }
+
+    private void addToRoom(Trees trees, BookedSlot slot){
+        RoomSchedule room = trees.rooms.computeIfAbsent(slot.getRoomName(), k -> new RoomSchedule(slotMinutes));
+        synchronized (room.tree){
+            room.tree.add(slot);
+            room.bitmap.mark(slot.getStartsAt(), slot.getFinishesAt());
+        }
+    }
+
+    private static void removeFromRoom(Trees trees, BookedSlot slot){
+        RoomSchedule room = slot.getRoomName() == null ? null : trees.rooms.get(slot.getRoomName());
+        if (room == null){
+            return;
+        }
+        IntervalTree tree = room.tree;
+        OccupancyBitmap bitmap = room.bitmap;
+        synchronized (tree){
+            tree.remove(slot);
+            // Edge slots may be shared with neighbours, so clear the range and re-mark them
+            LocalDateTime from = bitmap.slotStart(slot.getStartsAt());
+            LocalDateTime to = bitmap.slotEnd(slot.getFinishesAt());
+            bitmap.clear(from, to);
+            for (BookedSlot remaining : tree.overlapping(from, to)){
+                bitmap.mark(remaining.getStartsAt(), remaining.getFinishesAt());
+            }
+        }
+    }
+
+    private static void removeFromTrees(Trees trees, BookedSlot slot){
+        removeFromRoom(trees, slot);
+        removeFrom(trees.doctors, slot.getDoctorId(), slot);
+        removeFrom(trees.patients, slot.getPatientId(), slot);
+    }
+
+    private static <K> void addTo(Map<K, IntervalTree> trees, K key, BookedSlot slot){
+        IntervalTree tree = trees.computeIfAbsent(key, k -> new IntervalTree());
+        synchronized (tree){
+            tree.add(slot);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, IntervalTree> trees, K key, BookedSlot slot){
+        IntervalTree tree = key == null ? null : trees.get(key);
+        if (tree == null){
+            return;
+        }
+        synchronized (tree){
+            tree.remove(slot);
+        }
+    }
+
+    private static <K> boolean anyOverlap(Map<K, IntervalTree> trees, K key, LocalDateTime from, LocalDateTime to, Scan scan){
+        IntervalTree tree = trees.get(key);
+        if (tree == null){
+            return false;
+        }
+        synchronized (tree){
+            boolean overlaps = tree.anyOverlap(from, to);
+            scan.candidates += tree.lastScanned();
+            return overlaps;
+        }
+    }
+
+    private static <K> List<BookedSlot> find(Map<K, IntervalTree> trees, K key, LocalDateTime from, LocalDateTime to){
+        IntervalTree tree = trees.get(key);
+        if (tree == null){
+            return Collections.emptyList();
+        }
+        synchronized (tree){
+            return tree.overlapping(from, to);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.scheduling;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.entities.Appointment;
+
+public class BookedSlot {
+
+    private final long id;
+    private final String roomName;
+    private final long doctorId;
+    private final long patientId;
+    private final LocalDateTime startsAt;
+    private final LocalDateTime finishesAt;
+
+    public BookedSlot(long id, String roomName, LocalDateTime startsAt, LocalDateTime finishesAt){
+        this(id, roomName, null, null, startsAt, finishesAt);
+    }
+
+    public BookedSlot(long id, String roomName, Long doctorId, Long patientId, LocalDateTime startsAt, LocalDateTime finishesAt){
+        this.id = id;
+        this.roomName = roomName;
+        this.doctorId = doctorId == null ? 0 : doctorId;
+        this.patientId = patientId == null ? 0 : patientId;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    public static BookedSlot of(Appointment appointment){
+        String roomName = appointment.getRoom() == null ? null : appointment.getRoom().getRoomName();
+        Long doctorId = appointment.getDoctor() == null ? null : appointment.getDoctor().getId();
+        Long patientId = appointment.getPatient() == null ? null : appointment.getPatient().getId();
+        return new BookedSlot(appointment.getId(), roomName, doctorId, patientId, appointment.getStartsAt(), appointment.getFinishesAt());
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+    /** 0 when the appointment has no persisted doctor. */
+    public long getDoctorId(){
+        return this.doctorId;
+    }
+
+    /** 0 when the appointment has no persisted patient. */
+    public long getPatientId(){
+        return this.patientId;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+
+    /** Keys of the room, doctor and patient this slot occupies, e.g. "room:Dermatology". */
+    public List<String> resourceKeys(){
+        List<String> keys = new ArrayList<>(3);
+        if (this.roomName != null){
+            keys.add("room:" + this.roomName);
+        }
+        if (this.doctorId != 0){
+            keys.add("doctor:" + this.doctorId);
+        }
+        if (this.patientId != 0){
+            keys.add("patient:" + this.patientId);
+        }
+        return keys;
+    }
+
+    public boolean overlaps(LocalDateTime from, LocalDateTime to){
+        // Half-open intervals: [startsAt, finishesAt) and [from, to)
+        return this.startsAt.isBefore(to) && from.isBefore(this.finishesAt);
+    }
+}
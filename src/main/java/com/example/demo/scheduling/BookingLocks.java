@@ -0,0 +1,75 @@
+package com.example.demo.scheduling;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.Appointment;
+
+/**
+ * Striped locks that serialise the check-then-insert of bookings sharing a room,
+ * doctor or patient, while bookings on unrelated resources run in parallel.
+ * Stripes are always taken in ascending order, so two bookings that hash to the
+ * same stripes cannot deadlock.
+ */
+@Component
+public class BookingLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public BookingLocks(@Value("${booking.lock.stripes:64}") int stripes){
+        int size = 1;
+        while (size < stripes){
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++){
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public int stripeCount(){
+        return stripes.length;
+    }
+
+    public <T> T withLocks(Appointment appointment, Supplier<T> action){
+        return withLocks(BookedSlot.of(appointment), action);
+    }
+
+    public <T> T withLocks(BookedSlot slot, Supplier<T> action){
+        return withStripes(slot.resourceKeys().stream().mapToInt(this::stripeFor), action);
+    }
+
+    /** Holds the stripes of every resource touched by any of the appointments. */
+    public <T> T withLocks(Collection<Appointment> appointments, Supplier<T> action){
+        return withStripes(appointments.stream()
+            .flatMap(appointment -> BookedSlot.of(appointment).resourceKeys().stream())
+            .mapToInt(this::stripeFor), action);
+    }
+
+    private <T> T withStripes(IntStream indexes, Supplier<T> action){
+        int[] ordered = indexes.sorted().distinct().toArray();
+        int locked = 0;
+        try {
+            for (int index : ordered){
+                stripes[index].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--){
+                stripes[ordered[i]].unlock();
+            }
+        }
+    }
+
+    private int stripeFor(String key){
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return hash & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,438 @@
+package com.example.demo.scheduling;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+
+/**
+ * Transactional booking path that stays correct when several instances share one
+ * database: the room, doctor and patient rows are locked with SELECT ... FOR UPDATE,
+ * always in that order, so bookings sharing any of them serialise across nodes without
+ * deadlocking while unrelated bookings proceed in parallel.
+ */
+@Service
+public class BookingService {
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired(required = false)
+    OverlapMetrics overlapMetrics;
+
+    /**
+     * Longest duration of any booked appointment, in seconds. No appointment starting
+     * longer than this before a window can reach into it, which bounds the index scans
+     * of the window queries from below. Only ever raised: by every booking through this
+     * instance before it is saved, and by a periodic read of the table, which also picks
+     * up bookings through other instances and rows written before this instance started.
+     */
+    private final AtomicLong longestSeconds = new AtomicLong();
+
+    /** Starts before finishing. */
+    public boolean isValid(Appointment appointment){
+        return isValid(appointment.getStartsAt(), appointment.getFinishesAt());
+    }
+
+    /** Names a patient, a doctor and a room, and has a valid period. */
+    public boolean isValid(BookingRequest request){
+        return request.getPatientId() != null && request.getDoctorId() != null && request.getRoomName() != null &&
+                isValid(request.getStartsAt(), request.getFinishesAt());
+    }
+
+    private boolean isValid(LocalDateTime startsAt, LocalDateTime finishesAt){
+        return startsAt != null && finishesAt != null && startsAt.isBefore(finishesAt);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${booking.lookback-refresh-ms:60000}", initialDelayString = "${booking.lookback-refresh-ms:60000}")
+    public void refreshLongest(){
+        longestSeconds.accumulateAndGet(appointmentRepository.findLongestSeconds(), Math::max);
+    }
+
+    private void recordDuration(Appointment appointment){
+        longestSeconds.accumulateAndGet(
+            Duration.between(appointment.getStartsAt(), appointment.getFinishesAt()).getSeconds(), Math::max);
+    }
+
+    private LocalDateTime earliestStart(LocalDateTime from){
+        return from.minusSeconds(longestSeconds.get());
+    }
+
+    /** Appointments of the room overlapping [from, to), in start order. */
+    @Transactional(readOnly = true)
+    public List<Appointment> findInRoom(String roomName, LocalDateTime from, LocalDateTime to){
+        return appointmentRepository.findInRoomWindow(roomName, earliestStart(from), from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Appointment> findForDoctor(long doctorId, LocalDateTime from, LocalDateTime to){
+        return appointmentRepository.findForDoctorWindow(doctorId, earliestStart(from), from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Appointment> findForPatient(long patientId, LocalDateTime from, LocalDateTime to){
+        return appointmentRepository.findForPatientWindow(patientId, earliestStart(from), from, to);
+    }
+
+    /** The saved appointment, or empty when it conflicts with an existing one. */
+    @Transactional
+    public Optional<Appointment> book(Appointment appointment){
+        return book(appointment, new HashSet<>());
+    }
+
+    /**
+     * As {@link #book(Appointment)}, also adding to inserted the entity class of every
+     * row it created: the room, even when the booking then conflicts, and the doctor
+     * and patient when they had no id yet.
+     */
+    @Transactional
+    public Optional<Appointment> book(Appointment appointment, Set<Class<?>> inserted){
+        boolean newDoctor = appointment.getDoctor() != null && appointment.getDoctor().getId() == 0;
+        boolean newPatient = appointment.getPatient() != null && appointment.getPatient().getId() == 0;
+        if (appointment.getRoom() != null){
+            appointment.setRoom(lockRoom(appointment.getRoom(), inserted));
+        }
+        // New doctors and patients are inserted with the appointment, nobody else can book them yet
+        if (appointment.getDoctor() != null && !newDoctor){
+            doctorRepository.findByIdForUpdate(appointment.getDoctor().getId()).ifPresent(appointment::setDoctor);
+        }
+        if (appointment.getPatient() != null && !newPatient){
+            patientRepository.findByIdForUpdate(appointment.getPatient().getId()).ifPresent(appointment::setPatient);
+        }
+        if (hasConflict(appointment)){
+            return Optional.empty();
+        }
+        recordDuration(appointment);
+        Appointment saved = appointmentRepository.save(appointment);
+        if (newDoctor){
+            inserted.add(Doctor.class);
+        }
+        if (newPatient){
+            inserted.add(Patient.class);
+        }
+        return Optional.of(saved);
+    }
+
+    /**
+     * Books against existing rows by id: the room, doctor and patient are locked in that
+     * order, which also checks that they exist, and nothing is cascaded. Besides the locks
+     * and the conflict check the booking is a single insert. Invalid when any of the three
+     * is missing.
+     */
+    @Transactional
+    public BookingResult book(BookingRequest request){
+        Optional<Room> room = roomRepository.findByRoomNameForUpdate(request.getRoomName());
+        if (!room.isPresent()){
+            return BookingResult.invalid(0);
+        }
+        Optional<Doctor> doctor = doctorRepository.findByIdForUpdate(request.getDoctorId());
+        if (!doctor.isPresent()){
+            return BookingResult.invalid(0);
+        }
+        Optional<Patient> patient = patientRepository.findByIdForUpdate(request.getPatientId());
+        if (!patient.isPresent()){
+            return BookingResult.invalid(0);
+        }
+
+        Appointment appointment = new Appointment(patient.get(), doctor.get(), room.get(),
+            request.getStartsAt(), request.getFinishesAt());
+        if (hasConflict(appointment)){
+            return BookingResult.conflict(0);
+        }
+        recordDuration(appointment);
+        return BookingResult.booked(0, appointmentRepository.save(appointment).getId());
+    }
+
+    /**
+     * The first free slots of the given duration in [from, to) for the room, the doctor,
+     * or both. Busy times are read with the same lookback as the window queries, so an
+     * appointment that started days before from still blocks the time it runs into.
+     */
+    @Transactional(readOnly = true)
+    public List<FreeSlot> findFreeSlots(String roomName, Long doctorId, LocalDateTime from, LocalDateTime to,
+                                        Duration duration, int limit){
+        LocalDateTime earliestStart = earliestStart(from);
+        List<List<BookedSlot>> busy = new ArrayList<>();
+        if (roomName != null){
+            busy.add(appointmentRepository.findSlotsInRoomWindow(roomName, earliestStart, from, to));
+        }
+        if (doctorId != null){
+            busy.add(appointmentRepository.findSlotsForDoctorWindow(doctorId, earliestStart, from, to));
+        }
+        return FreeSlots.find(from, to, duration, limit, busy);
+    }
+
+    /**
+     * Books a batch in one transaction. Room rows are locked in name order, then doctor
+     * and patient rows in id order, existing
+     * appointments of every room, doctor and patient involved are read with a single
+     * query, and the batch is then swept in start order so that items conflicting with
+     * the database or with an earlier starting item of the same batch are rejected.
+     * Accepted items are inserted together on flush, which Hibernate sends as JDBC batches.
+     */
+    @Transactional
+    public List<BookingResult> bookAll(List<Appointment> appointments){
+        BookingResult[] results = new BookingResult[appointments.size()];
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < appointments.size(); i++){
+            if (isValid(appointments.get(i))){
+                candidates.add(i);
+            } else {
+                results[i] = BookingResult.invalid(i);
+            }
+        }
+        if (candidates.isEmpty()){
+            return Arrays.asList(results);
+        }
+
+        Map<String, Room> rooms = new TreeMap<>();
+        for (int i : candidates){
+            Room room = appointments.get(i).getRoom();
+            if (room != null){
+                rooms.putIfAbsent(room.getRoomName(), room);
+            }
+        }
+        Set<Class<?>> inserted = new HashSet<>();
+        rooms.replaceAll((roomName, room) -> lockRoom(room, inserted));
+        for (int i : candidates){
+            Appointment appointment = appointments.get(i);
+            if (appointment.getRoom() != null){
+                appointment.setRoom(rooms.get(appointment.getRoom().getRoomName()));
+            }
+        }
+        lockParticipants(appointments, candidates, results);
+        if (candidates.isEmpty()){
+            return Arrays.asList(results);
+        }
+
+        Map<String, IntervalTree> existing = loadExisting(appointments, candidates);
+        candidates.sort(Comparator.comparing((Integer i) -> appointments.get(i).getStartsAt()).thenComparing(i -> i));
+
+        // Latest finish of the items already accepted on each resource. Items arrive in start
+        // order, so an accepted item overlaps the current one exactly when it ends after it starts.
+        Map<String, LocalDateTime> busyUntil = new HashMap<>();
+        List<Integer> accepted = new ArrayList<>();
+        for (int i : candidates){
+            Appointment appointment = appointments.get(i);
+            List<String> keys = BookedSlot.of(appointment).resourceKeys();
+            if (conflicts(appointment, keys, busyUntil, existing)){
+                results[i] = BookingResult.conflict(i);
+                continue;
+            }
+            for (String key : keys){
+                busyUntil.merge(key, appointment.getFinishesAt(), (a, b) -> a.isAfter(b) ? a : b);
+            }
+            recordDuration(appointment);
+            appointmentRepository.save(appointment);
+            accepted.add(i);
+        }
+        appointmentRepository.flush();
+
+        for (int i : accepted){
+            results[i] = BookingResult.booked(i, appointments.get(i).getId());
+        }
+        return Arrays.asList(results);
+    }
+
+    private static boolean conflicts(Appointment appointment, List<String> keys,
+                                     Map<String, LocalDateTime> busyUntil, Map<String, IntervalTree> existing){
+        for (String key : keys){
+            LocalDateTime busy = busyUntil.get(key);
+            if (busy != null && busy.isAfter(appointment.getStartsAt())){
+                return true;
+            }
+            IntervalTree tree = existing.get(key);
+            if (tree != null && tree.anyOverlap(appointment.getStartsAt(), appointment.getFinishesAt())){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes every appointment with a single bulk delete. Patients, doctors and rooms
+     * are independent rows and stay.
+     */
+    @Transactional
+    public void deleteAll(){
+        appointmentRepository.deleteAllInBatch();
+    }
+
+    private Map<String, IntervalTree> loadExisting(List<Appointment> appointments, List<Integer> candidates){
+        Set<String> keys = new HashSet<>();
+        Set<String> roomNames = new HashSet<>();
+        Set<Long> doctorIds = new HashSet<>();
+        Set<Long> patientIds = new HashSet<>();
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        for (int i : candidates){
+            BookedSlot slot = BookedSlot.of(appointments.get(i));
+            keys.addAll(slot.resourceKeys());
+            if (slot.getRoomName() != null){
+                roomNames.add(slot.getRoomName());
+            }
+            if (slot.getDoctorId() != 0){
+                doctorIds.add(slot.getDoctorId());
+            }
+            if (slot.getPatientId() != 0){
+                patientIds.add(slot.getPatientId());
+            }
+            from = from == null || slot.getStartsAt().isBefore(from) ? slot.getStartsAt() : from;
+            to = to == null || slot.getFinishesAt().isAfter(to) ? slot.getFinishesAt() : to;
+        }
+
+        // An empty IN list is not valid SQL everywhere, so pad with values no row can have
+        List<BookedSlot> slots = appointmentRepository.findSlotsOverlapping(
+            roomNames.isEmpty() ? Collections.singleton("") : roomNames,
+            doctorIds.isEmpty() ? Collections.singleton(0L) : doctorIds,
+            patientIds.isEmpty() ? Collections.singleton(0L) : patientIds,
+            from, to);
+
+        Map<String, IntervalTree> existing = new HashMap<>();
+        for (BookedSlot slot : slots){
+            for (String key : slot.resourceKeys()){
+                if (keys.contains(key)){
+                    existing.computeIfAbsent(key, k -> new IntervalTree()).add(slot);
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Same order as the single booking: rooms first, then doctors, then patients, each by
+     * key. Items naming a doctor or patient id that does not exist are invalid and leave
+     * the candidates.
+     */
+    private void lockParticipants(List<Appointment> appointments, List<Integer> candidates, BookingResult[] results){
+        Map<Long, Doctor> doctors = new TreeMap<>();
+        Map<Long, Patient> patients = new TreeMap<>();
+        for (int i : candidates){
+            Appointment appointment = appointments.get(i);
+            if (appointment.getDoctor() != null && appointment.getDoctor().getId() != 0){
+                doctors.put(appointment.getDoctor().getId(), null);
+            }
+            if (appointment.getPatient() != null && appointment.getPatient().getId() != 0){
+                patients.put(appointment.getPatient().getId(), null);
+            }
+        }
+        doctors.replaceAll((id, doctor) -> doctorRepository.findByIdForUpdate(id).orElse(null));
+        patients.replaceAll((id, patient) -> patientRepository.findByIdForUpdate(id).orElse(null));
+        for (Iterator<Integer> it = candidates.iterator(); it.hasNext(); ){
+            int i = it.next();
+            Appointment appointment = appointments.get(i);
+            boolean byDoctorId = appointment.getDoctor() != null && appointment.getDoctor().getId() != 0;
+            boolean byPatientId = appointment.getPatient() != null && appointment.getPatient().getId() != 0;
+            Doctor doctor = byDoctorId ? doctors.get(appointment.getDoctor().getId()) : null;
+            Patient patient = byPatientId ? patients.get(appointment.getPatient().getId()) : null;
+            if (byDoctorId && doctor == null || byPatientId && patient == null){
+                results[i] = BookingResult.invalid(i);
+                it.remove();
+                continue;
+            }
+            if (doctor != null){
+                appointment.setDoctor(doctor);
+            }
+            if (patient != null){
+                appointment.setPatient(patient);
+            }
+        }
+    }
+
+    private Room lockRoom(Room room, Set<Class<?>> inserted){
+        Optional<Room> locked = roomRepository.findByRoomNameForUpdate(room.getRoomName());
+        if (locked.isPresent()){
+            return locked.get();
+        }
+        // The insert keeps the new row locked until commit. A node inserting the same
+        // room concurrently fails on the primary key and retries against the locked row.
+        try {
+            Room saved = roomRepository.saveAndFlush(room);
+            inserted.add(Room.class);
+            return saved;
+        } catch (DataIntegrityViolationException e){
+            if (isDuplicateKey(e)){
+                throw new DuplicateKeyException("Room " + room.getRoomName() + " was inserted concurrently", e);
+            }
+            throw e;
+        }
+    }
+
+    // SQLState 23505 is the standard unique violation, MySQL reports 23000 with error 1062
+    private static boolean isDuplicateKey(Throwable e){
+        for (Throwable cause = e; cause != null; cause = cause.getCause()){
+            if (cause instanceof SQLException){
+                SQLException sql = (SQLException) cause;
+                if ("23505".equals(sql.getSQLState()) || sql.getErrorCode() == 1062){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hasConflict(Appointment appointment){
+        long started = System.nanoTime();
+        boolean conflict = findsConflict(appointment);
+        if (overlapMetrics != null){
+            overlapMetrics.recordDatabaseCheck(conflict, System.nanoTime() - started);
+        }
+        return conflict;
+    }
+
+    private boolean findsConflict(Appointment appointment){
+        LocalDateTime startsAt = appointment.getStartsAt();
+        LocalDateTime finishesAt = appointment.getFinishesAt();
+
+        if (appointment.getRoom() != null &&
+                appointmentRepository.countOverlappingInRoom(appointment.getRoom().getRoomName(), startsAt, finishesAt) > 0){
+            return true;
+        }
+        if (appointment.getDoctor() != null && appointment.getDoctor().getId() != 0 &&
+                appointmentRepository.countOverlappingForDoctor(appointment.getDoctor().getId(), startsAt, finishesAt) > 0){
+            return true;
+        }
+        return appointment.getPatient() != null && appointment.getPatient().getId() != 0 &&
+                appointmentRepository.countOverlappingForPatient(appointment.getPatient().getId(), startsAt, finishesAt) > 0;
+    }
+}
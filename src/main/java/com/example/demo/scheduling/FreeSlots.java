@@ -0,0 +1,52 @@
+package com.example.demo.scheduling;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds free slots by merging several busy lists, each sorted by start, and walking
+ * the gaps between them once. Within a gap slots are laid back to back.
+ */
+public final class FreeSlots {
+
+    private FreeSlots(){
+    }
+
+    public static List<FreeSlot> find(LocalDateTime from, LocalDateTime to, Duration duration, int limit,
+                                      List<List<BookedSlot>> busy){
+        List<FreeSlot> slots = new ArrayList<>();
+        int[] next = new int[busy.size()];
+        LocalDateTime cursor = from;
+
+        while (slots.size() < limit){
+            // Earliest starting busy interval not yet visited, across all lists
+            BookedSlot earliest = null;
+            int list = -1;
+            for (int i = 0; i < busy.size(); i++){
+                if (next[i] < busy.get(i).size()){
+                    BookedSlot candidate = busy.get(i).get(next[i]);
+                    if (earliest == null || candidate.getStartsAt().isBefore(earliest.getStartsAt())){
+                        earliest = candidate;
+                        list = i;
+                    }
+                }
+            }
+
+            LocalDateTime gapEnd = earliest == null || earliest.getStartsAt().isAfter(to) ? to : earliest.getStartsAt();
+            while (slots.size() < limit && !cursor.plus(duration).isAfter(gapEnd)){
+                slots.add(new FreeSlot(cursor, cursor.plus(duration)));
+                cursor = cursor.plus(duration);
+            }
+            if (earliest == null || !earliest.getStartsAt().isBefore(to)){
+                break;
+            }
+            if (earliest.getFinishesAt().isAfter(cursor)){
+                cursor = earliest.getFinishesAt();
+            }
+            next[list]++;
+        }
+        return slots;
+    }
+}
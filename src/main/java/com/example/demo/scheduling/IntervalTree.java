@@ -0,0 +1,205 @@
+package com.example.demo.scheduling;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AVL tree of booked slots ordered by (startsAt, id), where every node also keeps
+ * the latest finishesAt of its subtree. That lets overlap queries skip whole
+ * subtrees, so a lookup costs O(log n + k) for k matching slots.
+ *
+ * Not thread safe, callers synchronize on the tree.
+ */
+public class IntervalTree {
+
+    private static final class Node {
+        BookedSlot slot;
+        LocalDateTime maxFinishesAt;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(BookedSlot slot){
+            this.slot = slot;
+            this.maxFinishesAt = slot.getFinishesAt();
+        }
+    }
+
+    private Node root;
+    private int size;
+    private int scanned;
+
+    public int size(){
+        return this.size;
+    }
+
+    public boolean isEmpty(){
+        return this.size == 0;
+    }
+
+    public void add(BookedSlot slot){
+        this.root = insert(this.root, slot);
+    }
+
+    public boolean remove(BookedSlot slot){
+        int before = this.size;
+        this.root = delete(this.root, slot);
+        return this.size < before;
+    }
+
+    public boolean anyOverlap(LocalDateTime from, LocalDateTime to){
+        this.scanned = 0;
+        return firstOverlap(this.root, from, to) != null;
+    }
+
+    /** Booked slots compared against the range by the last anyOverlap call. */
+    public int lastScanned(){
+        return this.scanned;
+    }
+
+    /** Slots overlapping [from, to), in start order. */
+    public List<BookedSlot> overlapping(LocalDateTime from, LocalDateTime to){
+        List<BookedSlot> result = new ArrayList<>();
+        collect(this.root, from, to, result);
+        return result;
+    }
+
+    private static int compare(BookedSlot a, BookedSlot b){
+        int cmp = a.getStartsAt().compareTo(b.getStartsAt());
+        return cmp != 0 ? cmp : Long.compare(a.getId(), b.getId());
+    }
+
+    private Node insert(Node node, BookedSlot slot){
+        if (node == null){
+            this.size++;
+            return new Node(slot);
+        }
+        int cmp = compare(slot, node.slot);
+        if (cmp < 0){
+            node.left = insert(node.left, slot);
+        } else if (cmp > 0){
+            node.right = insert(node.right, slot);
+        } else {
+            node.slot = slot;
+        }
+        return rebalance(node);
+    }
+
+    private Node delete(Node node, BookedSlot slot){
+        if (node == null){
+            return null;
+        }
+        int cmp = compare(slot, node.slot);
+        if (cmp < 0){
+            node.left = delete(node.left, slot);
+        } else if (cmp > 0){
+            node.right = delete(node.right, slot);
+        } else {
+            this.size--;
+            if (node.left == null){
+                return node.right;
+            }
+            if (node.right == null){
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null){
+                successor = successor.left;
+            }
+            node.slot = successor.slot;
+            this.size++;
+            node.right = delete(node.right, successor.slot);
+        }
+        return rebalance(node);
+    }
+
+    private BookedSlot firstOverlap(Node node, LocalDateTime from, LocalDateTime to){
+        while (node != null){
+            if (!node.maxFinishesAt.isAfter(from)){
+                return null;
+            }
+            if (node.left != null && node.left.maxFinishesAt.isAfter(from)){
+                BookedSlot found = firstOverlap(node.left, from, to);
+                if (found != null){
+                    return found;
+                }
+            }
+            this.scanned++;
+            if (node.slot.overlaps(from, to)){
+                return node.slot;
+            }
+            if (!node.slot.getStartsAt().isBefore(to)){
+                return null;
+            }
+            node = node.right;
+        }
+        return null;
+    }
+
+    private static void collect(Node node, LocalDateTime from, LocalDateTime to, List<BookedSlot> result){
+        if (node == null || !node.maxFinishesAt.isAfter(from)){
+            return;
+        }
+        collect(node.left, from, to, result);
+        if (!node.slot.getStartsAt().isBefore(to)){
+            return;
+        }
+        if (node.slot.overlaps(from, to)){
+            result.add(node.slot);
+        }
+        collect(node.right, from, to, result);
+    }
+
+    private static int height(Node node){
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node){
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        LocalDateTime max = node.slot.getFinishesAt();
+        if (node.left != null && node.left.maxFinishesAt.isAfter(max)){
+            max = node.left.maxFinishesAt;
+        }
+        if (node.right != null && node.right.maxFinishesAt.isAfter(max)){
+            max = node.right.maxFinishesAt;
+        }
+        node.maxFinishesAt = max;
+    }
+
+    private static Node rotateRight(Node node){
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node){
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rebalance(Node node){
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1){
+            if (height(node.left.left) < height(node.left.right)){
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1){
+            if (height(node.right.right) < height(node.right.left)){
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.demo.scheduling;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Occupied slots of one room, one bit per fixed-length slot and one long[] per day.
+ * A slot is marked when any appointment touches it, so clear bits always mean free
+ * while a set bit may only be partly taken.
+ *
+ * Not thread safe, callers synchronize on the room's tree.
+ */
+public class OccupancyBitmap {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int slotMinutes;
+    private final int slotsPerDay;
+    private final Map<LocalDate, long[]> days = new HashMap<>();
+
+    public OccupancyBitmap(int slotMinutes){
+        if (slotMinutes <= 0 || MINUTES_PER_DAY % slotMinutes != 0){
+            throw new IllegalArgumentException("Slot length must divide a day: " + slotMinutes);
+        }
+        this.slotMinutes = slotMinutes;
+        this.slotsPerDay = MINUTES_PER_DAY / slotMinutes;
+    }
+
+    public int getSlotMinutes(){
+        return this.slotMinutes;
+    }
+
+    /** Start of the slot containing the given time. */
+    public LocalDateTime slotStart(LocalDateTime time){
+        return time.toLocalDate().atStartOfDay().plusMinutes((long) slotOf(time) * slotMinutes);
+    }
+
+    /** End of the last slot touched by an interval finishing at the given time. */
+    public LocalDateTime slotEnd(LocalDateTime time){
+        LocalDateTime start = slotStart(time);
+        return start.equals(time) ? time : start.plusMinutes(slotMinutes);
+    }
+
+    public void mark(LocalDateTime from, LocalDateTime to){
+        update(from, to, true);
+    }
+
+    public void clear(LocalDateTime from, LocalDateTime to){
+        update(from, to, false);
+    }
+
+    public boolean isFree(LocalDateTime from, LocalDateTime to){
+        return forEachDay(from, to, (day, first, last) -> {
+            long[] words = days.get(day);
+            return words == null || !anySet(words, first, last);
+        });
+    }
+
+    /** Copy of the day's words, bit i of word w standing for slot 64 * w + i. */
+    public long[] words(LocalDate day){
+        long[] words = days.get(day);
+        return words == null ? new long[wordCount()] : words.clone();
+    }
+
+    private void update(LocalDateTime from, LocalDateTime to, boolean occupied){
+        forEachDay(from, to, (day, first, last) -> {
+            if (occupied){
+                setRange(days.computeIfAbsent(day, d -> new long[wordCount()]), first, last);
+            } else if (days.containsKey(day)){
+                clearRange(days.get(day), first, last);
+            }
+            return true;
+        });
+    }
+
+    private interface DayRange {
+        /** Visits slots [first, last) of one day; returning false stops the walk. */
+        boolean visit(LocalDate day, int first, int last);
+    }
+
+    /** Splits the slots touched by [from, to) into one range per day. */
+    private boolean forEachDay(LocalDateTime from, LocalDateTime to, DayRange range){
+        LocalDateTime end = slotEnd(to);
+        LocalDateTime cursor = slotStart(from);
+        while (cursor.isBefore(end)){
+            LocalDate day = cursor.toLocalDate();
+            LocalDateTime nextDay = day.plusDays(1).atStartOfDay();
+            int last = end.isBefore(nextDay) ? slotOf(end) : slotsPerDay;
+            if (!range.visit(day, slotOf(cursor), last)){
+                return false;
+            }
+            cursor = nextDay;
+        }
+        return true;
+    }
+
+    private int wordCount(){
+        return (slotsPerDay + 63) >>> 6;
+    }
+
+    private int slotOf(LocalDateTime time){
+        return time.toLocalTime().toSecondOfDay() / 60 / slotMinutes;
+    }
+
+    private static void setRange(long[] words, int from, int to){
+        for (int word = from >>> 6; from < to; word++){
+            int next = Math.min(to, (word + 1) << 6);
+            words[word] |= mask(from, next);
+            from = next;
+        }
+    }
+
+    private static void clearRange(long[] words, int from, int to){
+        for (int word = from >>> 6; from < to; word++){
+            int next = Math.min(to, (word + 1) << 6);
+            words[word] &= ~mask(from, next);
+            from = next;
+        }
+    }
+
+    private static boolean anySet(long[] words, int from, int to){
+        for (int word = from >>> 6; from < to; word++){
+            int next = Math.min(to, (word + 1) << 6);
+            if ((words[word] & mask(from, next)) != 0){
+                return true;
+            }
+            from = next;
+        }
+        return false;
+    }
+
+    /** Bits [from, to) of the word holding from, with to at most the end of that word. */
+    private static long mask(int from, int to){
+        long high = (to & 63) == 0 ? -1L : (1L << (to & 63)) - 1;
+        return high & (-1L << (from & 63));
+    }
+}
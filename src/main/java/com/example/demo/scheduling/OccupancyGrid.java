@@ -0,0 +1,51 @@
+package com.example.demo.scheduling;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * One day of room occupancy for dashboards. Each room maps to its bitmap as Base64,
+ * where bit i of byte b (least significant first) is slot 8 * b + i of the day.
+ */
+public class OccupancyGrid {
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd/MM/yyyy")
+    private final LocalDate date;
+
+    private final int slotMinutes;
+
+    private final Map<String, String> rooms = new LinkedHashMap<>();
+
+    public OccupancyGrid(LocalDate date, int slotMinutes, Map<String, long[]> words){
+        this.date = date;
+        this.slotMinutes = slotMinutes;
+        int bytes = (24 * 60 / slotMinutes + 7) / 8;
+        words.forEach((roomName, bits) -> {
+            ByteBuffer buffer = ByteBuffer.allocate(bits.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+            for (long word : bits){
+                buffer.putLong(word);
+            }
+            byte[] encoded = new byte[bytes];
+            System.arraycopy(buffer.array(), 0, encoded, 0, bytes);
+            rooms.put(roomName, Base64.getEncoder().encodeToString(encoded));
+        });
+    }
+
+    public LocalDate getDate(){
+        return this.date;
+    }
+
+    public int getSlotMinutes(){
+        return this.slotMinutes;
+    }
+
+    public Map<String, String> getRooms(){
+        return this.rooms;
+    }
+}
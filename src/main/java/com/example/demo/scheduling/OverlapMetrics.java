@@ -0,0 +1,64 @@
+package com.example.demo.scheduling;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters of the booking overlap check:
+ *
+ * booking.overlap.check, a timer tagged check=index (AppointmentIndex, before locking)
+ * or check=database (inside the booking transaction) and result=conflict or free. The
+ * share of result=conflict in its count is the rejection rate.
+ *
+ * booking.overlap.candidates, the booked slots one index check compared against the
+ * requested range. Checks answered by the occupancy bitmap compare none.
+ */
+@Component
+public class OverlapMetrics {
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private Timer indexConflict;
+    private Timer indexFree;
+    private Timer databaseConflict;
+    private Timer databaseFree;
+    private DistributionSummary candidates;
+
+    @PostConstruct
+    void register(){
+        indexConflict = timer("index", "conflict");
+        indexFree = timer("index", "free");
+        databaseConflict = timer("database", "conflict");
+        databaseFree = timer("database", "free");
+        candidates = DistributionSummary.builder("booking.overlap.candidates")
+            .description("Booked slots compared by one overlap check of the appointment index")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private Timer timer(String check, String result){
+        return Timer.builder("booking.overlap.check")
+            .description("Time to check a booking for overlapping appointments")
+            .tags("check", check, "result", result)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    public void recordIndexCheck(boolean conflict, int candidatesScanned, long nanos){
+        (conflict ? indexConflict : indexFree).record(nanos, TimeUnit.NANOSECONDS);
+        candidates.record(candidatesScanned);
+    }
+
+    public void recordDatabaseCheck(boolean conflict, long nanos){
+        (conflict ? databaseConflict : databaseFree).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.views;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/** Flattened appointment for list screens: participant ids and display names only. */
+public class AppointmentSummary {
+
+    private final long id;
+    private final Long patientId;
+    private final String patientName;
+    private final Long doctorId;
+    private final String doctorName;
+    private final String roomName;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime finishesAt;
+
+    public AppointmentSummary(long id, Long patientId, String patientName, Long doctorId, String doctorName,
+                              String roomName, LocalDateTime startsAt, LocalDateTime finishesAt){
+        this.id = id;
+        this.patientId = patientId;
+        this.patientName = patientName;
+        this.doctorId = doctorId;
+        this.doctorName = doctorName;
+        this.roomName = roomName;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    public static AppointmentSummary of(AppointmentView view){
+        PersonView patient = view.getPatient();
+        PersonView doctor = view.getDoctor();
+        return new AppointmentSummary(view.getId(),
+            patient == null ? null : patient.getId(), patient == null ? null : fullName(patient),
+            doctor == null ? null : doctor.getId(), doctor == null ? null : fullName(doctor),
+            view.getRoom() == null ? null : view.getRoom().getRoomName(),
+            view.getStartsAt(), view.getFinishesAt());
+    }
+
+    private static String fullName(PersonView person){
+        return person.getFirstName() + " " + person.getLastName();
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public Long getPatientId(){
+        return this.patientId;
+    }
+
+    public String getPatientName(){
+        return this.patientName;
+    }
+
+    public Long getDoctorId(){
+        return this.doctorId;
+    }
+
+    public String getDoctorName(){
+        return this.doctorName;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.views;
+
+import java.time.LocalDateTime;
+
+import com.example.demo.entities.Appointment;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Read-only appointment row with its participants nested as in the entity's JSON.
+ * The repository selects it column by column from a single joined select; a
+ * missing participant arrives as null ids and ends up as a null member.
+ */
+public class AppointmentView {
+
+    private final long id;
+    private final PersonView patient;
+    private final PersonView doctor;
+    private final RoomView room;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime finishesAt;
+
+    public AppointmentView(long id, LocalDateTime startsAt, LocalDateTime finishesAt,
+                           Long patientId, String patientFirstName, String patientLastName, Integer patientAge, String patientEmail,
+                           Long doctorId, String doctorFirstName, String doctorLastName, Integer doctorAge, String doctorEmail,
+                           String roomName){
+        this(id, startsAt, finishesAt,
+            patientId == null ? null : new PersonView(patientId, patientFirstName, patientLastName, patientAge, patientEmail),
+            doctorId == null ? null : new PersonView(doctorId, doctorFirstName, doctorLastName, doctorAge, doctorEmail),
+            roomName == null ? null : new RoomView(roomName));
+    }
+
+    public AppointmentView(long id, LocalDateTime startsAt, LocalDateTime finishesAt,
+                           PersonView patient, PersonView doctor, RoomView room){
+        this.id = id;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+        this.patient = patient;
+        this.doctor = doctor;
+        this.room = room;
+    }
+
+    public static AppointmentView of(Appointment appointment){
+        return new AppointmentView(appointment.getId(), appointment.getStartsAt(), appointment.getFinishesAt(),
+            appointment.getPatient() == null ? null : PersonView.of(appointment.getPatient()),
+            appointment.getDoctor() == null ? null : PersonView.of(appointment.getDoctor()),
+            appointment.getRoom() == null ? null : RoomView.of(appointment.getRoom()));
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public PersonView getPatient(){
+        return this.patient;
+    }
+
+    public PersonView getDoctor(){
+        return this.doctor;
+    }
+
+    public RoomView getRoom(){
+        return this.room;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.demo.views;
+
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+
+/**
+ * Read-only doctor or patient row, serialized exactly like the entity. Built by
+ * JPQL constructor expressions, so it never enters the persistence context.
+ */
+public class PersonView {
+
+    private final long id;
+    private final String firstName;
+    private final String lastName;
+    private final int age;
+    private final String email;
+
+    public PersonView(long id, String firstName, String lastName, int age, String email){
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.age = age;
+        this.email = email;
+    }
+
+    public static PersonView of(Doctor doctor){
+        return new PersonView(doctor.getId(), doctor.getFirstName(), doctor.getLastName(), doctor.getAge(), doctor.getEmail());
+    }
+
+    public static PersonView of(Patient patient){
+        return new PersonView(patient.getId(), patient.getFirstName(), patient.getLastName(), patient.getAge(), patient.getEmail());
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public String getFirstName(){
+        return this.firstName;
+    }
+
+    public String getLastName(){
+        return this.lastName;
+    }
+
+    public int getAge(){
+        return this.age;
+    }
+
+    public String getEmail(){
+        return this.email;
+    }
+}
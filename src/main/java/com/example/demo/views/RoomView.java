@@ -0,0 +1,20 @@
+package com.example.demo.views;
+
+import com.example.demo.entities.Room;
+
+public class RoomView {
+
+    private final String roomName;
+
+    public RoomView(String roomName){
+        this.roomName = roomName;
+    }
+
+    public static RoomView of(Room room){
+        return new RoomView(room.getRoomName());
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.demo;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -9,41 +13,84 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import java.time.LocalDateTime;
 import java.time.format.*;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import com.example.demo.controllers.AppointmentController;
+import com.example.demo.controllers.ChangeVersions;
 import com.example.demo.repositories.*;
 import com.example.demo.entities.*;
+import com.example.demo.export.AppointmentExporter;
+import com.example.demo.scheduling.AppointmentIndex;
+import com.example.demo.scheduling.BookedSlot;
+import com.example.demo.scheduling.BookingLocks;
+import com.example.demo.scheduling.BookingService;
+import com.example.demo.views.AppointmentView;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @WebMvcTest(AppointmentController.class)
+@AutoConfigureDataJpa
+@Import({AppointmentIndex.class, BookingLocks.class, BookingService.class, RetryConfiguration.class, ChangeVersions.class})
 class AppointmentControllerUnitTest{
 
     @MockBean
     private AppointmentRepository appointmentRepository;
 
+    @MockBean
+    private RoomRepository roomRepository;
+
+    @MockBean
+    private DoctorRepository doctorRepository;
+
+    @MockBean
+    private PatientRepository patientRepository;
+
+    @MockBean
+    private AppointmentExporter appointmentExporter;
+
+    @Autowired
+    private AppointmentIndex appointmentIndex;
+
     @Autowired 
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ChangeVersions changeVersions;
+
+    @BeforeEach
+    void clearIndex(){
+        appointmentIndex.clear();
+        when(appointmentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(roomRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
     @Test
     void shouldCreateAppointment() throws Exception {
         
@@ -112,6 +159,7 @@ class AppointmentControllerUnitTest{
         appointments.add(appointment);
         
         when(appointmentRepository.findAll()).thenReturn(appointments);
+        when(appointmentRepository.countOverlappingInRoom(eq("Dermatology"), any(), any())).thenReturn(1L);
         mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment2)))
                 .andExpect(status().isNotAcceptable());
@@ -158,10 +206,141 @@ class AppointmentControllerUnitTest{
 
     }
     
+    @Test
+    void shouldBookOverSlotDeletedThroughAnotherNode() throws Exception {
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        // Still in this node's index, but no longer in the database
+        appointmentIndex.add(new BookedSlot(99, "Dermatology", startsAt, startsAt.plusHours(1)));
+        Appointment appointment = new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+            new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), new Room("Dermatology"), startsAt, startsAt.plusHours(1));
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isOk());
+
+        assertThat(appointmentIndex.findInRoom("Dermatology", startsAt, startsAt.plusHours(1)))
+            .extracting(BookedSlot::getId).containsExactly(0L);
+    }
+
+    @Test
+    void shouldRejectAppointmentInsideAnExistingOne() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Patient patient2 = new Patient("Paulino", "Antunez", 37, "p.antunez@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Doctor doctor2 = new Doctor ("Miren", "Iniesta", 24, "m.iniesta@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        Appointment appointment = new Appointment(patient, doctor, room,
+                LocalDateTime.parse("18:00 24/04/2023", formatter), LocalDateTime.parse("21:00 24/04/2023", formatter));
+        Appointment appointment2 = new Appointment(patient2, doctor2, room,
+                LocalDateTime.parse("19:00 24/04/2023", formatter), LocalDateTime.parse("20:00 24/04/2023", formatter));
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isOk());
+
+        when(appointmentRepository.countOverlappingInRoom(eq("Dermatology"), any(), any())).thenReturn(1L);
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment2)))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void shouldNotDoubleBookDoctorInAnotherRoom() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Patient patient2 = new Patient("Paulino", "Antunez", 37, "p.antunez@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        doctor.setId(1);
+        patient2.setId(2);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+        Appointment appointment2 = new Appointment(patient2, doctor, room2, startsAt, finishesAt);
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isOk());
+
+        // The database decides, the index only hints
+        when(appointmentRepository.countOverlappingForDoctor(eq(1L), any(), any())).thenReturn(1L);
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment2)))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void shouldNotDoubleBookPatientWhenDatabaseReportsConflict() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Oncology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        patient.setId(3);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+
+        when(appointmentRepository.countOverlappingForPatient(3, startsAt, finishesAt)).thenReturn(1L);
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void shouldNotCreateAppointmentWhenDatabaseReportsConflict() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+
+        when(appointmentRepository.countOverlappingInRoom("Dermatology", startsAt, finishesAt)).thenReturn(1L);
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void shouldFreeSlotWhenAppointmentIsDeleted() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        Appointment appointment = new Appointment(patient, doctor, room,
+                LocalDateTime.parse("19:30 24/04/2023", formatter), LocalDateTime.parse("20:30 24/04/2023", formatter));
+        appointment.setId(7);
+        appointmentIndex.add(appointment);
+
+        when(appointmentRepository.findById(appointment.getId())).thenReturn(Optional.of(appointment));
+        mockMvc.perform(delete("/api/appointments/" + appointment.getId()))
+                .andExpect(status().isOk());
+
+        assertThat(appointmentIndex.overlaps(appointment)).isFalse();
+    }
+
     @Test
     void shouldGetNoAppointments() throws Exception{
         List<Appointment> appointments = new ArrayList<Appointment>();
-        when(appointmentRepository.findAll()).thenReturn(appointments);
+        when(appointmentRepository.findAllViews()).thenReturn(appointments.stream().map(AppointmentView::of).collect(Collectors.toList()));
         mockMvc.perform(get("/api/appointments"))
                 .andExpect(status().isNoContent());
                 
@@ -190,12 +369,57 @@ class AppointmentControllerUnitTest{
         appointments.add(appointment);
         appointments.add(appointment2);
 
-        when(appointmentRepository.findAll()).thenReturn(appointments);
+        when(appointmentRepository.findAllViews()).thenReturn(appointments.stream().map(AppointmentView::of).collect(Collectors.toList()));
         mockMvc.perform(get("/api/appointments"))
                 .andExpect(status().isOk());
                 
     }
 
+    @Test
+    void shouldFlattenParticipantsInFlatView() throws Exception{
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        patient.setId(3);
+        doctor.setId(4);
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 0);
+        Appointment appointment = new Appointment(patient, doctor, new Room("Dermatology"), startsAt, startsAt.plusHours(1));
+        appointment.setId(5);
+
+        when(appointmentRepository.findAllViews()).thenReturn(Collections.singletonList(AppointmentView.of(appointment)));
+        mockMvc.perform(get("/api/appointments").param("view", "flat"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(5))
+                .andExpect(jsonPath("$[0].patientId").value(3))
+                .andExpect(jsonPath("$[0].patientName").value("Jose Luis Olaya"))
+                .andExpect(jsonPath("$[0].doctorName").value("Perla Amalia"))
+                .andExpect(jsonPath("$[0].roomName").value("Dermatology"))
+                .andExpect(jsonPath("$[0].startsAt").value("19:00 24/04/2023"))
+                .andExpect(jsonPath("$[0].patient").doesNotExist());
+
+        mockMvc.perform(get("/api/appointments").param("view", "wide"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldGetNextPageOfAppointmentsFromCursor() throws Exception{
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 0);
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, startsAt.plusHours(1));
+        appointment.setId(5);
+
+        String cursor = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("2023-04-24T18:00|4".getBytes(StandardCharsets.UTF_8));
+
+        when(appointmentRepository.findPageAfter(eq(startsAt.minusHours(1)), eq(4L), any(Pageable.class)))
+            .thenReturn(Collections.singletonList(AppointmentView.of(appointment)));
+        mockMvc.perform(get("/api/appointments").param("limit", "1").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Link"));
+    }
+
     @Test
     void shouldGetAppointmentById() throws Exception{
         Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
@@ -274,5 +498,239 @@ class AppointmentControllerUnitTest{
                 .andExpect(status().isOk());
                 
     }
-}
 
+    @Test
+    void shouldStreamAppointmentsAsNdjson() throws Exception{
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(appointmentExporter).writeNdjson(any());
+
+        MvcResult result = mockMvc.perform(get("/api/appointments").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    @Test
+    void shouldKeepJsonArrayAsDefaultRepresentation() throws Exception{
+        when(appointmentRepository.findAllViews()).thenReturn(new ArrayList<>());
+        mockMvc.perform(get("/api/appointments"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void shouldReportEachItemOfBulkBooking() throws Exception{
+        Room room = new Room("Dermatology");
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+
+        List<Appointment> appointments = Arrays.asList(
+            new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), room, startsAt, startsAt.plusHours(1)),
+            new Appointment(new Patient("Paulino", "Antunez", 37, "p.antunez@email.com"),
+                new Doctor ("Miren", "Iniesta", 24, "m.iniesta@hospital.accwe"), room, startsAt.plusMinutes(30), startsAt.plusHours(2)),
+            new Appointment(new Patient("Paulino", "Antunez", 37, "p.antunez@email.com"),
+                new Doctor ("Miren", "Iniesta", 24, "m.iniesta@hospital.accwe"), room, startsAt, startsAt));
+
+        mockMvc.perform(post("/api/appointments/bulk").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointments)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("BOOKED"))
+                .andExpect(jsonPath("$[1].status").value("CONFLICT"))
+                .andExpect(jsonPath("$[2].status").value("INVALID"));
+
+        assertThat(appointmentIndex.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldBookByReference() throws Exception{
+        Room room = new Room("Dermatology");
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        patient.setId(1);
+        doctor.setId(2);
+        String booking = "{\"patientId\":1,\"doctorId\":2,\"roomName\":\"Dermatology\"," +
+            "\"startsAt\":\"19:30 24/04/2023\",\"finishesAt\":\"20:30 24/04/2023\"}";
+
+        when(roomRepository.findByRoomNameForUpdate("Dermatology")).thenReturn(Optional.of(room));
+        when(doctorRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(doctor));
+        when(patientRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(patient));
+
+        mockMvc.perform(post("/api/appointments").contentType(MediaType.APPLICATION_JSON).content(booking))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.status").value("BOOKED"));
+        assertThat(appointmentIndex.size()).isEqualTo(1);
+
+        when(appointmentRepository.countOverlappingInRoom(eq("Dermatology"), any(), any())).thenReturn(1L);
+        mockMvc.perform(post("/api/appointments").contentType(MediaType.APPLICATION_JSON).content(booking))
+                .andExpect(status().isNotAcceptable());
+
+        mockMvc.perform(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(booking.replace("\"doctorId\":2", "\"doctorId\":3").replace("19:30", "21:00").replace("20:30", "22:00")))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(booking.replace("\"roomName\":\"Dermatology\",", "")))
+                .andExpect(status().isBadRequest());
+        verify(appointmentRepository, times(1)).save(any());
+    }
+
+    @Test
+    void shouldRejectEmptyBulkBooking() throws Exception{
+        mockMvc.perform(post("/api/appointments/bulk").contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldGetRoomAppointmentsInWindow() throws Exception{
+        Room room = new Room("Dermatology");
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 25, 9, 0);
+        Appointment appointment = new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+            new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), room, startsAt, startsAt.plusHours(1));
+
+        when(appointmentRepository.findInRoomWindow(eq("Dermatology"), any(),
+                eq(startsAt.minusHours(8)), eq(startsAt.plusHours(15))))
+            .thenReturn(Collections.singletonList(appointment));
+
+        mockMvc.perform(get("/api/rooms/Dermatology/appointments")
+                .param("from", "01:00 25/04/2023")
+                .param("to", "00:00 26/04/2023"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].startsAt").value("09:00 25/04/2023"));
+    }
+
+    @Test
+    void shouldGetNoContentForEmptyDoctorWindow() throws Exception{
+        mockMvc.perform(get("/api/doctors/1/appointments")
+                .param("from", "00:00 25/04/2023")
+                .param("to", "00:00 26/04/2023"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void shouldRejectInvertedPatientWindow() throws Exception{
+        mockMvc.perform(get("/api/patients/1/appointments")
+                .param("from", "00:00 26/04/2023")
+                .param("to", "00:00 25/04/2023"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldCreateAppointmentLongerThanADay() throws Exception{
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 9, 0);
+        Appointment appointment = new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+            new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), new Room("Dermatology"), startsAt, startsAt.plusHours(25));
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldFindFreeSlotsAroundBookedAppointments() throws Exception{
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 25, 9, 0);
+
+        when(appointmentRepository.findSlotsInRoomWindow(eq("Dermatology"), any(), eq(nine), eq(nine.plusHours(4))))
+            .thenReturn(Collections.singletonList(new BookedSlot(1, "Dermatology", nine, nine.plusHours(1))));
+
+        mockMvc.perform(get("/api/slots")
+                .param("room", "Dermatology")
+                .param("from", "09:00 25/04/2023")
+                .param("to", "13:00 25/04/2023")
+                .param("duration", "90")
+                .param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].startsAt").value("10:00 25/04/2023"))
+                .andExpect(jsonPath("$[1].startsAt").value("11:30 25/04/2023"));
+    }
+
+    @Test
+    void shouldRequireRoomOrDoctorForFreeSlots() throws Exception{
+        mockMvc.perform(get("/api/slots")
+                .param("from", "09:00 25/04/2023")
+                .param("to", "13:00 25/04/2023")
+                .param("duration", "30"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReportRoomOccupancyForTheDay() throws Exception{
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+        appointmentIndex.add(new BookedSlot(1, "Dermatology", nine, nine.plusMinutes(30)));
+
+        mockMvc.perform(get("/api/rooms/Dermatology/free")
+                .param("from", "09:15 24/04/2023")
+                .param("to", "10:00 24/04/2023"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("false"));
+
+        mockMvc.perform(get("/api/rooms/Dermatology/free")
+                .param("from", "09:30 24/04/2023")
+                .param("to", "10:00 24/04/2023"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("true"));
+
+        // Slots 36 and 37 of 96: bits 4 and 5 of byte 4
+        mockMvc.perform(get("/api/occupancy").param("date", "24/04/2023"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.slotMinutes").value(15))
+                .andExpect(jsonPath("$.rooms.Dermatology").value(
+                    Base64.getEncoder().encodeToString(new byte[]{ 0, 0, 0, 0, 0x30, 0, 0, 0, 0, 0, 0, 0 })));
+    }
+
+    @Test
+    void shouldChangeAppointmentsEtagWhenADoctorIsAdded() throws Exception{
+        when(appointmentRepository.findAllViews()).thenReturn(new ArrayList<>());
+        String etag = mockMvc.perform(get("/api/appointments")).andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/appointments").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        changeVersions.changed(ChangeVersions.Type.DOCTORS);
+
+        mockMvc.perform(get("/api/appointments").header("If-None-Match", etag))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void shouldChangeAppointmentsEtagAfterBooking() throws Exception{
+        String etag = mockMvc.perform(get("/api/appointments/1")).andReturn().getResponse().getHeader("ETag");
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 9, 0);
+        Appointment appointment = new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+            new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), new Room("Dermatology"), startsAt, startsAt.plusHours(1));
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/appointments/1").header("If-None-Match", etag))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldKeepEtagsWhenBookingIsRejectedInAnExistingRoom() throws Exception{
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 9, 0);
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        doctor.setId(1);
+        patient.setId(1);
+        Room room = new Room("Dermatology");
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, startsAt.plusHours(1));
+        when(roomRepository.findByRoomNameForUpdate("Dermatology")).thenReturn(Optional.of(room));
+        when(appointmentRepository.countOverlappingInRoom(eq("Dermatology"), any(), any())).thenReturn(1L);
+        String etag = changeVersions.etag(ChangeVersions.Type.values());
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isNotAcceptable());
+
+        assertThat(changeVersions.etag(ChangeVersions.Type.values())).isEqualTo(etag);
+    }
+}
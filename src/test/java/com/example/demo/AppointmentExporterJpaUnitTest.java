@@ -0,0 +1,80 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import com.example.demo.entities.*;
+import com.example.demo.export.AppointmentExporter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@DataJpaTest(properties = "export.chunk-size=2")
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import({AppointmentExporter.class, JacksonAutoConfiguration.class, JacksonConfiguration.class})
+class AppointmentExporterJpaUnitTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AppointmentExporter appointmentExporter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void shouldWriteNothingWhenThereAreNoAppointments() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        appointmentExporter.writeNdjson(out);
+        assertThat(out.size()).isZero();
+    }
+
+    @Test
+    void shouldWriteOneJsonDocumentPerLineAcrossChunks() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 8, 0);
+        for (int i = 0; i < 5; i++){
+            entityManager.persist(new Appointment(patient, doctor, room, startsAt.plusHours(i), startsAt.plusHours(i + 1)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        appointmentExporter.writeNdjson(out);
+
+        String body = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(body).endsWith("\n");
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(5);
+        // Jackson separates root values with a space unless told otherwise
+        byte[] bytes = out.toByteArray();
+        int second = body.indexOf('\n') + 1;
+        assertThat(bytes[second]).isEqualTo((byte) '{');
+        assertThat(new String(bytes, second, lines[1].length(), StandardCharsets.UTF_8))
+            .isEqualTo(objectMapper.writeValueAsString(objectMapper.readTree(lines[1])));
+        for (String line : lines){
+            JsonNode node = objectMapper.readTree(line);
+            assertThat(node.get("room").get("roomName").asText()).isEqualTo("Dermatology");
+            assertThat(node.get("doctor").get("firstName").asText()).isEqualTo("Perla");
+        }
+    }
+}
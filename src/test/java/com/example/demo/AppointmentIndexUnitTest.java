@@ -0,0 +1,227 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.scheduling.AppointmentIndex;
+import com.example.demo.scheduling.BookedSlot;
+import com.example.demo.scheduling.IntervalTree;
+import com.example.demo.scheduling.OccupancyBitmap;
+
+class AppointmentIndexUnitTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2023, 4, 24, 8, 0);
+
+    private static BookedSlot slot(long id, int startMinute, int finishMinute){
+        return new BookedSlot(id, "Dermatology", BASE.plusMinutes(startMinute), BASE.plusMinutes(finishMinute));
+    }
+
+    @Test
+    void shouldFindNoOverlapInEmptyTree(){
+        IntervalTree tree = new IntervalTree();
+        assertThat(tree.anyOverlap(BASE, BASE.plusHours(1))).isFalse();
+        assertThat(tree.overlapping(BASE, BASE.plusHours(1))).isEmpty();
+    }
+
+    @Test
+    void shouldNotOverlapWhenSlotsOnlyTouch(){
+        IntervalTree tree = new IntervalTree();
+        tree.add(slot(1, 0, 60));
+
+        assertThat(tree.anyOverlap(BASE.plusMinutes(60), BASE.plusMinutes(90))).isFalse();
+        assertThat(tree.anyOverlap(BASE.minusMinutes(30), BASE)).isFalse();
+    }
+
+    @Test
+    void shouldOverlapWhenContainedInExistingSlot(){
+        IntervalTree tree = new IntervalTree();
+        tree.add(slot(1, 0, 180));
+
+        assertThat(tree.anyOverlap(BASE.plusMinutes(60), BASE.plusMinutes(90))).isTrue();
+    }
+
+    @Test
+    void shouldForgetRemovedSlot(){
+        IntervalTree tree = new IntervalTree();
+        BookedSlot first = slot(1, 0, 60);
+        BookedSlot second = slot(2, 0, 30);
+        tree.add(first);
+        tree.add(second);
+
+        assertThat(tree.remove(first)).isTrue();
+        assertThat(tree.size()).isEqualTo(1);
+        assertThat(tree.anyOverlap(BASE.plusMinutes(30), BASE.plusMinutes(60))).isFalse();
+        assertThat(tree.overlapping(BASE, BASE.plusMinutes(60))).containsExactly(second);
+    }
+
+    @Test
+    void shouldMatchLinearScanOnRandomSlots(){
+        Random random = new Random(42);
+        IntervalTree tree = new IntervalTree();
+        List<BookedSlot> all = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++){
+            int start = random.nextInt(10_000);
+            BookedSlot slot = slot(i, start, start + 1 + random.nextInt(240));
+            tree.add(slot);
+            all.add(slot);
+        }
+        for (int i = 0; i < 500; i++){
+            BookedSlot removed = all.remove(random.nextInt(all.size()));
+            assertThat(tree.remove(removed)).isTrue();
+        }
+        assertThat(tree.size()).isEqualTo(all.size());
+
+        for (int i = 0; i < 1000; i++){
+            int start = random.nextInt(10_500);
+            LocalDateTime from = BASE.plusMinutes(start);
+            LocalDateTime to = from.plusMinutes(1 + random.nextInt(120));
+
+            List<BookedSlot> expected = all.stream()
+                .filter(s -> s.overlaps(from, to))
+                .sorted((a, b) -> a.getStartsAt().equals(b.getStartsAt())
+                    ? Long.compare(a.getId(), b.getId())
+                    : a.getStartsAt().compareTo(b.getStartsAt()))
+                .collect(Collectors.toList());
+
+            assertThat(tree.overlapping(from, to)).containsExactlyElementsOf(expected);
+            assertThat(tree.anyOverlap(from, to)).isEqualTo(!expected.isEmpty());
+        }
+    }
+
+    @Test
+    void shouldCompareFewSlotsToFindAGap(){
+        IntervalTree tree = new IntervalTree();
+        for (int i = 0; i < 1024; i++){
+            tree.add(slot(i, i * 60, i * 60 + 30));
+        }
+
+        assertThat(tree.anyOverlap(BASE.plusMinutes(500 * 60 + 30), BASE.plusMinutes(501 * 60))).isFalse();
+        assertThat(tree.lastScanned()).isPositive().isLessThan(30);
+    }
+
+    @Test
+    void shouldDetectDoctorAndPatientDoubleBookingAcrossRooms(){
+        AppointmentIndex index = new AppointmentIndex();
+        index.add(new BookedSlot(1, "Dermatology", 10L, 20L, BASE, BASE.plusHours(1)));
+
+        assertThat(index.findForDoctor(10, BASE.plusMinutes(30), BASE.plusMinutes(90))).hasSize(1);
+        assertThat(index.findForPatient(20, BASE.plusMinutes(30), BASE.plusMinutes(90))).hasSize(1);
+        assertThat(index.findForDoctor(11, BASE.plusMinutes(30), BASE.plusMinutes(90))).isEmpty();
+
+        index.remove(1);
+
+        assertThat(index.findForDoctor(10, BASE, BASE.plusHours(1))).isEmpty();
+        assertThat(index.findInRoom("Dermatology", BASE, BASE.plusHours(1))).isEmpty();
+    }
+
+    @Test
+    void shouldMarkEverySlotTouchedByAnAppointment(){
+        OccupancyBitmap bitmap = new OccupancyBitmap(15);
+        bitmap.mark(BASE.plusMinutes(10), BASE.plusMinutes(50));
+
+        assertThat(bitmap.isFree(BASE.minusMinutes(15), BASE)).isTrue();
+        assertThat(bitmap.isFree(BASE, BASE.plusMinutes(15))).isFalse();
+        assertThat(bitmap.isFree(BASE.plusMinutes(45), BASE.plusMinutes(60))).isFalse();
+        assertThat(bitmap.isFree(BASE.plusMinutes(60), BASE.plusMinutes(75))).isTrue();
+        assertThat(bitmap.words(BASE.toLocalDate())[0]).isEqualTo(0xFL << 32);
+    }
+
+    @Test
+    void shouldMarkAppointmentsCrossingMidnight(){
+        OccupancyBitmap bitmap = new OccupancyBitmap(5);
+        LocalDateTime midnight = BASE.toLocalDate().plusDays(1).atStartOfDay();
+        bitmap.mark(midnight.minusMinutes(10), midnight.plusMinutes(10));
+
+        assertThat(bitmap.isFree(midnight.minusMinutes(20), midnight.minusMinutes(10))).isTrue();
+        assertThat(bitmap.isFree(midnight.minusMinutes(5), midnight)).isFalse();
+        assertThat(bitmap.isFree(midnight, midnight.plusMinutes(5))).isFalse();
+        assertThat(bitmap.isFree(midnight.plusMinutes(10), midnight.plusMinutes(15))).isTrue();
+        assertThat(bitmap.words(midnight.toLocalDate())[0]).isEqualTo(0b11L);
+    }
+
+    @Test
+    void shouldKeepSharedSlotMarkedWhenNeighbourIsRemoved(){
+        AppointmentIndex index = new AppointmentIndex();
+        index.add(new BookedSlot(1, "Dermatology", BASE, BASE.plusMinutes(20)));
+        index.add(new BookedSlot(2, "Dermatology", BASE.plusMinutes(20), BASE.plusMinutes(40)));
+
+        index.remove(1);
+
+        assertThat(index.isRoomFree("Dermatology", BASE, BASE.plusMinutes(15))).isTrue();
+        assertThat(index.isRoomFree("Dermatology", BASE.plusMinutes(15), BASE.plusMinutes(20))).isTrue();
+        assertThat(index.isRoomFree("Dermatology", BASE.plusMinutes(15), BASE.plusMinutes(25))).isFalse();
+        assertThat(index.occupancy(BASE.toLocalDate()).get("Dermatology")[0]).isEqualTo(0b11L << 33);
+    }
+
+    @Test
+    void shouldAnswerRoomAvailabilityLikeTheTree(){
+        Random random = new Random(11);
+        AppointmentIndex index = new AppointmentIndex();
+        IntervalTree tree = new IntervalTree();
+        List<BookedSlot> all = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++){
+            int start = random.nextInt(20_000);
+            BookedSlot slot = slot(i, start, start + 1 + random.nextInt(90));
+            index.add(slot);
+            tree.add(slot);
+            all.add(slot);
+        }
+        for (int i = 0; i < 400; i++){
+            BookedSlot removed = all.remove(random.nextInt(all.size()));
+            index.remove(removed.getId());
+            tree.remove(removed);
+        }
+
+        for (int i = 0; i < 2000; i++){
+            LocalDateTime from = BASE.plusMinutes(random.nextInt(20_100));
+            LocalDateTime to = from.plusMinutes(1 + random.nextInt(60));
+            assertThat(index.isRoomFree("Dermatology", from, to)).isEqualTo(!tree.anyOverlap(from, to));
+        }
+    }
+
+    @Test
+    void shouldKeepEveryRoomQueryableWhileClearingConcurrently() throws Exception {
+        AppointmentIndex index = new AppointmentIndex();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> booking = executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++){
+                    index.add(new BookedSlot(i, "Room " + (i % 50), BASE, BASE.plusMinutes(30)));
+                    index.overlaps(new BookedSlot(-1, "Room " + (i % 50), BASE, BASE.plusMinutes(30)));
+                }
+            });
+            Future<?> clearing = executor.submit(() -> {
+                while (!booking.isDone()){
+                    index.clear();
+                }
+            });
+            Future<?> reading = executor.submit(() -> {
+                while (!booking.isDone()){
+                    index.occupancy(BASE.toLocalDate());
+                    index.isRoomFree("Room 0", BASE, BASE.plusMinutes(30));
+                }
+            });
+            booking.get(30, TimeUnit.SECONDS);
+            clearing.get(30, TimeUnit.SECONDS);
+            reading.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        index.add(new BookedSlot(1, "Room 0", BASE, BASE.plusMinutes(30)));
+        assertThat(index.isRoomFree("Room 0", BASE, BASE.plusMinutes(15))).isFalse();
+    }
+}
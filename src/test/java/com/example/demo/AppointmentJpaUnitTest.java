@@ -1,6 +1,7 @@
 package com.example.demo;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -8,12 +9,15 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 
 import com.example.demo.repositories.*;
+import com.example.demo.views.AppointmentView;
 import com.example.demo.entities.*;
+import com.example.demo.scheduling.BookedSlot;
 
 
 @DataJpaTest
@@ -258,4 +262,158 @@ class AppointmentJpaUnitTest {
         assertThat(appointments).isEmpty();
     }
     
+    @Test
+    void should_find_booked_slots_of_all_appointments(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        LocalDateTime finishesAt = LocalDateTime.of(2023, 4, 24, 20, 30);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+        entityManager.persist(appointment);
+
+        List<BookedSlot> slots = repoAppointments.findAllSlots();
+
+        assertThat(slots).hasSize(1);
+        assertThat(slots.get(0))
+            .hasFieldOrPropertyWithValue("id", appointment.getId())
+            .hasFieldOrPropertyWithValue("roomName", "Dermatology")
+            .hasFieldOrPropertyWithValue("startsAt", startsAt)
+            .hasFieldOrPropertyWithValue("finishesAt", finishesAt);
+    }
+
+    @Test
+    void should_count_only_overlapping_appointments_in_the_same_room(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room1 = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room1);
+        entityManager.persist(room2);
+
+        Appointment before = new Appointment(patient, doctor, room1, nine.minusHours(1), nine);
+        Appointment during = new Appointment(patient, doctor, room1, nine.minusHours(1), nine.plusHours(3));
+        Appointment after = new Appointment(patient, doctor, room1, nine.plusHours(1), nine.plusHours(2));
+        Appointment otherRoom = new Appointment(patient, doctor, room2, nine, nine.plusHours(1));
+
+        entityManager.persist(before);
+        entityManager.persist(during);
+        entityManager.persist(after);
+        entityManager.persist(otherRoom);
+
+        // Only "during" overlaps, "before" and "after" merely touch the hour
+        assertThat(repoAppointments.countOverlappingInRoom("Dermatology", nine, nine.plusHours(1))).isEqualTo(1);
+    }
+
+    @Test
+    void should_count_overlapping_appointments_of_doctor_and_patient_in_any_room(){
+        Patient patient1 = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Patient patient2 = new Patient("Mariela", "Eric", 42, "m.eric@email.com");
+        Doctor doctor1 = new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe");
+        Doctor doctor2 = new Doctor ("Reyna", "Cayetana", 28, "r.cayetana@hospital.accwe");
+        Room room1 = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+        entityManager.persist(patient1);
+        entityManager.persist(patient2);
+        entityManager.persist(doctor1);
+        entityManager.persist(doctor2);
+        entityManager.persist(room1);
+        entityManager.persist(room2);
+
+        Appointment appointment1 = new Appointment(patient1, doctor1, room1, nine, nine.plusHours(1));
+        Appointment appointment2 = new Appointment(patient2, doctor2, room2, nine, nine.plusHours(1));
+
+        entityManager.persist(appointment1);
+        entityManager.persist(appointment2);
+
+        LocalDateTime from = nine.plusMinutes(30);
+        LocalDateTime to = nine.plusMinutes(90);
+
+        assertThat(repoAppointments.countOverlappingForDoctor(doctor1.getId(), from, to)).isEqualTo(1);
+        assertThat(repoAppointments.countOverlappingForPatient(patient2.getId(), from, to)).isEqualTo(1);
+        assertThat(repoAppointments.countOverlappingForDoctor(doctor1.getId(), nine.plusHours(1), nine.plusHours(2))).isZero();
+    }
+
+    @Test
+    void should_page_appointments_by_start_and_id(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+
+        Appointment late = new Appointment(patient, doctor, room, nine.plusHours(2), nine.plusHours(3));
+        Appointment early1 = new Appointment(patient, doctor, room, nine, nine.plusHours(1));
+        Appointment early2 = new Appointment(patient, doctor, room, nine, nine.plusHours(1));
+
+        entityManager.persist(late);
+        entityManager.persist(early1);
+        entityManager.persist(early2);
+
+        List<AppointmentView> first = repoAppointments.findFirstPage(PageRequest.of(0, 2));
+        AppointmentView last = first.get(1);
+        List<AppointmentView> second = repoAppointments.findPageAfter(last.getStartsAt(), last.getId(), PageRequest.of(0, 2));
+
+        assertThat(first).extracting(AppointmentView::getId).containsExactly(early1.getId(), early2.getId());
+        assertThat(second).extracting(AppointmentView::getId).containsExactly(late.getId());
+    }
+
+    @Test
+    void should_find_appointments_in_window_in_start_order(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room1 = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room1);
+        entityManager.persist(room2);
+
+        Appointment late = new Appointment(patient, doctor, room1, nine.plusHours(2), nine.plusHours(3));
+        Appointment early = new Appointment(patient, doctor, room1, nine.minusHours(1), nine.plusMinutes(30));
+        Appointment outside = new Appointment(patient, doctor, room1, nine.plusHours(4), nine.plusHours(5));
+        Appointment otherRoom = new Appointment(patient, doctor, room2, nine, nine.plusHours(1));
+
+        entityManager.persist(late);
+        entityManager.persist(early);
+        entityManager.persist(outside);
+        entityManager.persist(otherRoom);
+
+        LocalDateTime from = nine;
+        LocalDateTime to = nine.plusHours(4);
+        LocalDateTime earliestStart = from.minusHours(24);
+
+        assertThat(repoAppointments.findInRoomWindow("Dermatology", earliestStart, from, to)).containsExactly(early, late);
+        assertThat(repoAppointments.findForDoctorWindow(doctor.getId(), earliestStart, from, to)).containsExactly(early, otherRoom, late);
+        assertThat(repoAppointments.findForPatientWindow(patient.getId(), earliestStart, from, to)).containsExactly(early, otherRoom, late);
+        // Nothing starting before earliestStart is read
+        assertThat(repoAppointments.findInRoomWindow("Dermatology", nine.minusMinutes(30), from, to)).containsExactly(late);
+
+        // The same windows as times only, for the free slot search
+        assertThat(repoAppointments.findSlotsInRoomWindow("Dermatology", earliestStart, from, to))
+            .extracting(BookedSlot::getId).containsExactly(early.getId(), late.getId());
+        assertThat(repoAppointments.findSlotsForDoctorWindow(doctor.getId(), earliestStart, from, to))
+            .extracting(BookedSlot::getStartsAt).containsExactly(early.getStartsAt(), otherRoom.getStartsAt(), late.getStartsAt());
+    }
 }
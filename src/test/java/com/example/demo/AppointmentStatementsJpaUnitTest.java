@@ -0,0 +1,128 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+import com.example.demo.views.AppointmentView;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** Listing appointments must not issue one extra select per patient, doctor or room. */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+class AppointmentStatementsJpaUnitTest {
+
+    private static final int APPOINTMENTS = 20;
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    AppointmentRepository repoAppointments;
+
+    private Statistics statistics;
+
+    private Doctor doctor;
+
+    @BeforeEach
+    void persistAppointments(){
+        for (int i = 0; i < APPOINTMENTS; i++){
+            Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya" + i + "@email.com");
+            // Every appointment has its own patient and room, while the doctor is shared
+            if (i % 5 == 0){
+                doctor = entityManager.persist(new Doctor ("Perla", "Amalia", 24, "p.amalia" + i + "@hospital.accwe"));
+            }
+            Room room = new Room("Room " + i);
+            entityManager.persist(patient);
+            entityManager.persist(room);
+            entityManager.persist(new Appointment(patient, doctor, room, NINE.plusHours(i), NINE.plusHours(i + 1)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void should_list_all_appointments_in_one_statement(){
+        assertThat(repoAppointments.findAll()).hasSize(APPOINTMENTS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void should_page_appointments_in_one_statement_per_page(){
+        assertThat(repoAppointments.findFirstPage(PageRequest.of(0, 10))).hasSize(10);
+        assertThat(repoAppointments.findPageAfter(NINE.plusHours(9), Long.MAX_VALUE, PageRequest.of(0, 10))).hasSize(10);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void should_list_views_without_loading_entities(){
+        assertThat(repoAppointments.findAllViews()).hasSize(APPOINTMENTS);
+        assertThat(repoAppointments.findFirstPage(PageRequest.of(0, 10))).hasSize(10);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void should_serialize_views_like_entities(){
+        entityManager.persist(new Appointment(null, null, entityManager.find(Room.class, "Room 0"), NINE.minusHours(1), NINE));
+        entityManager.flush();
+        entityManager.clear();
+
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        List<Appointment> entities = repoAppointments.findAll().stream()
+            .sorted(Comparator.comparingLong(Appointment::getId))
+            .collect(Collectors.toList());
+        List<AppointmentView> views = repoAppointments.findAllViews().stream()
+            .sorted(Comparator.comparingLong(AppointmentView::getId))
+            .collect(Collectors.toList());
+
+        assertThat(views).hasSize(APPOINTMENTS + 1);
+        JsonNode expected = mapper.valueToTree(entities);
+        JsonNode actual = mapper.valueToTree(views);
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    void should_check_overlaps_in_one_statement_each_without_loading_entities(){
+        long patientId = repoAppointments.findAll().get(0).getPatient().getId();
+        entityManager.clear();
+        statistics.clear();
+        LocalDateTime from = NINE;
+        LocalDateTime to = NINE.plusHours(APPOINTMENTS);
+
+        assertThat(repoAppointments.countOverlappingInRoom("Room 3", from, to)).isEqualTo(1);
+        assertThat(repoAppointments.countOverlappingForDoctor(doctor.getId(), from, to)).isEqualTo(5);
+        assertThat(repoAppointments.countOverlappingForPatient(patientId, from, to)).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
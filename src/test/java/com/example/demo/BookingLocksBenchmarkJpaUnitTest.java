@@ -0,0 +1,119 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+import com.example.demo.scheduling.BookingLocks;
+import com.example.demo.scheduling.BookingService;
+
+/**
+ * Booking attempts per second through the striped locks and the booking transaction,
+ * with every thread contending for one room against one room per thread. Prints both
+ * rates, it asserts only that every slot was booked once. Run with -Pbenchmark.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import({BookingLocks.class, BookingService.class, RetryConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingLocksBenchmarkJpaUnitTest {
+
+    private static final int THREADS = 16;
+    private static final int SLOTS = 200;
+    private static final LocalDateTime BASE = LocalDateTime.of(2023, 4, 24, 8, 0);
+
+    @Autowired
+    BookingLocks bookingLocks;
+
+    @Autowired
+    BookingService bookingService;
+
+    @Autowired
+    RetryTemplate bookingRetryTemplate;
+
+    @Autowired
+    AppointmentRepository repoAppointments;
+
+    @Autowired
+    RoomRepository repoRooms;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    PatientRepository repoPatients;
+
+    @AfterEach
+    void cleanUp(){
+        repoAppointments.deleteAllInBatch();
+        repoRooms.deleteAllInBatch();
+        repoDoctors.deleteAllInBatch();
+        repoPatients.deleteAllInBatch();
+    }
+
+    @Test
+    void should_book_contended_and_spread_rooms() throws Exception {
+        assertThat(hammer(1)).isEqualTo(SLOTS);
+        cleanUp();
+        assertThat(hammer(THREADS)).isEqualTo(SLOTS * THREADS);
+    }
+
+    private int hammer(int rooms) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int t = 0; t < THREADS; t++){
+            String roomName = "Room " + (t % rooms);
+            executor.submit(() -> {
+                start.await();
+                for (int slot = 0; slot < SLOTS; slot++){
+                    Appointment appointment = new Appointment(
+                        new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                        new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"),
+                        new Room(roomName),
+                        BASE.plusMinutes(30L * slot),
+                        BASE.plusMinutes(30L * slot + 30));
+                    attempts.incrementAndGet();
+                    boolean ok = bookingRetryTemplate.execute(context -> bookingLocks.withLocks(appointment,
+                        () -> bookingService.book(appointment.copy()))).isPresent();
+                    if (ok){
+                        booked.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        System.out.printf("BookingLocks: %d room(s), %d threads, %d attempts in %.3f s (%.0f attempts/s)%n",
+            rooms, THREADS, attempts.get(), seconds, attempts.get() / seconds);
+        return booked.get();
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+import com.example.demo.scheduling.BookingLocks;
+import com.example.demo.scheduling.BookingService;
+
+/**
+ * Concurrent bookings through the striped locks and the transactional booking path,
+ * the way POST /api/appointment takes them.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import({BookingLocks.class, BookingService.class, RetryConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingLocksJpaUnitTest {
+
+    private static final int THREADS = 8;
+    private static final int SLOTS = 25;
+    private static final LocalDateTime BASE = LocalDateTime.of(2023, 4, 24, 8, 0);
+
+    @Autowired
+    BookingLocks bookingLocks;
+
+    @Autowired
+    BookingService bookingService;
+
+    @Autowired
+    RetryTemplate bookingRetryTemplate;
+
+    @Autowired
+    AppointmentRepository repoAppointments;
+
+    @Autowired
+    RoomRepository repoRooms;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    PatientRepository repoPatients;
+
+    @AfterEach
+    void cleanUp(){
+        repoAppointments.deleteAllInBatch();
+        repoRooms.deleteAllInBatch();
+        repoDoctors.deleteAllInBatch();
+        repoPatients.deleteAllInBatch();
+    }
+
+    @Test
+    void should_book_each_slot_of_one_room_exactly_once() throws Exception {
+        int booked = hammer(1);
+
+        assertThat(booked).isEqualTo(SLOTS);
+        assertThat(repoAppointments.count()).isEqualTo(SLOTS);
+        assertThat(repoRooms.count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_book_each_slot_of_many_rooms_exactly_once() throws Exception {
+        int booked = hammer(THREADS / 2);
+
+        assertThat(booked).isEqualTo(SLOTS * THREADS / 2);
+        assertThat(repoAppointments.count()).isEqualTo(SLOTS * THREADS / 2);
+    }
+
+    @Test
+    void should_not_deadlock_when_bookings_share_doctor_and_patient() throws Exception {
+        // Few stripes, so bookings on unrelated resources also share them
+        BookingLocks locks = new BookingLocks(4);
+        List<Doctor> doctors = new ArrayList<>();
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < 3; i++){
+            doctors.add(repoDoctors.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe")));
+        }
+        for (int i = 0; i < 5; i++){
+            patients.add(repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com")));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Optional<Appointment>>> results = new ArrayList<>();
+
+        for (int i = 0; i < SLOTS * 2; i++){
+            Appointment appointment = new Appointment(patients.get(i % 5), doctors.get(i % 3), new Room("Room " + (i % 7)),
+                BASE.plusMinutes(i), BASE.plusMinutes(i + 30));
+            results.add(executor.submit(() -> book(locks, appointment)));
+        }
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        for (Future<Optional<Appointment>> result : results){
+            result.get();
+        }
+    }
+
+    private int hammer(int rooms) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+
+        // Every thread tries every slot, so each slot is contended by THREADS / rooms bookings.
+        for (int t = 0; t < THREADS; t++){
+            String roomName = "Room " + (t % rooms);
+            executor.submit(() -> {
+                start.await();
+                for (int slot = 0; slot < SLOTS; slot++){
+                    Appointment appointment = new Appointment(
+                        new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                        new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"),
+                        new Room(roomName),
+                        BASE.plusMinutes(30L * slot),
+                        BASE.plusMinutes(30L * slot + 30));
+                    if (book(bookingLocks, appointment).isPresent()){
+                        booked.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+        return booked.get();
+    }
+
+    // As the controller books: locks and the booking transaction per attempt
+    private Optional<Appointment> book(BookingLocks locks, Appointment appointment){
+        return bookingRetryTemplate.execute(context -> locks.withLocks(appointment,
+            () -> bookingService.book(appointment.copy())));
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+import com.example.demo.scheduling.BookingRequest;
+import com.example.demo.scheduling.BookingResult;
+import com.example.demo.scheduling.BookingService;
+import com.example.demo.scheduling.FreeSlot;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import({BookingService.class, RetryConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingServiceJpaUnitTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+    @Autowired
+    BookingService bookingService;
+
+    @Autowired
+    RetryTemplate bookingRetryTemplate;
+
+    @Autowired
+    AppointmentRepository repoAppointments;
+
+    @Autowired
+    RoomRepository repoRooms;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    PatientRepository repoPatients;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp(){
+        repoAppointments.deleteAll();
+        repoRooms.deleteAll();
+        repoDoctors.deleteAll();
+        repoPatients.deleteAll();
+    }
+
+    private static Appointment appointment(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt){
+        return new Appointment(
+            new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+            new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"),
+            new Room(roomName),
+            startsAt, finishesAt);
+    }
+
+    @Test
+    void should_create_room_on_first_booking_and_reuse_it_afterwards(){
+        Optional<Appointment> first = bookingService.book(appointment("Dermatology", NINE, NINE.plusHours(1)));
+        Optional<Appointment> second = bookingService.book(appointment("Dermatology", NINE.plusHours(1), NINE.plusHours(2)));
+
+        assertThat(first).isPresent();
+        assertThat(second).isPresent();
+        assertThat(repoRooms.findAll()).hasSize(1);
+        assertThat(repoAppointments.findAll()).hasSize(2);
+    }
+
+    @Test
+    void should_reject_overlapping_booking(){
+        bookingService.book(appointment("Dermatology", NINE, NINE.plusHours(1)));
+
+        Optional<Appointment> overlapping = bookingService.book(appointment("Dermatology", NINE.plusMinutes(30), NINE.plusHours(2)));
+
+        assertThat(overlapping).isEmpty();
+        assertThat(repoAppointments.findAll()).hasSize(1);
+    }
+
+    @Test
+    void should_find_existing_appointments_longer_than_a_day_in_windows(){
+        // Written straight to the table, as by an older version or another instance
+        Appointment stay = repoAppointments.save(appointment("Dermatology", NINE, NINE.plusDays(3)));
+        bookingService.refreshLongest();
+
+        LocalDateTime from = NINE.plusDays(2);
+        assertThat(bookingService.findInRoom("Dermatology", from, from.plusHours(1)))
+            .extracting(Appointment::getId).containsExactly(stay.getId());
+        assertThat(bookingService.findForDoctor(stay.getDoctor().getId(), from, from.plusHours(1)))
+            .extracting(Appointment::getId).containsExactly(stay.getId());
+        assertThat(bookingService.findForPatient(stay.getPatient().getId(), from, from.plusHours(1)))
+            .extracting(Appointment::getId).containsExactly(stay.getId());
+    }
+
+    @Test
+    void should_not_offer_slots_taken_by_an_appointment_that_started_days_before(){
+        // Written straight to the table, as by an older version or another instance
+        Appointment stay = repoAppointments.save(appointment("Cardiology", NINE, NINE.plusDays(3).plusHours(2)));
+        bookingService.refreshLongest();
+
+        LocalDateTime from = NINE.plusDays(3);
+        assertThat(bookingService.findFreeSlots("Cardiology", null, from, from.plusHours(4), Duration.ofHours(1), 10))
+            .extracting(FreeSlot::getStartsAt).containsExactly(from.plusHours(2), from.plusHours(3));
+        assertThat(bookingService.findFreeSlots(null, stay.getDoctor().getId(), from, from.plusHours(4), Duration.ofHours(1), 10))
+            .extracting(FreeSlot::getStartsAt).containsExactly(from.plusHours(2), from.plusHours(3));
+    }
+
+    @Test
+    void should_book_appointments_longer_than_a_day_and_find_them_at_once(){
+        Optional<Appointment> stay = bookingService.book(appointment("Oncology", NINE, NINE.plusHours(30)));
+
+        assertThat(stay).isPresent();
+        assertThat(bookingService.findInRoom("Oncology", NINE.plusHours(29), NINE.plusHours(31)))
+            .extracting(Appointment::getId).containsExactly(stay.get().getId());
+        assertThat(bookingService.book(appointment("Oncology", NINE.plusHours(28), NINE.plusHours(29)))).isEmpty();
+    }
+
+    @Test
+    void should_book_contended_slot_once_without_in_memory_locks() throws Exception {
+        // Every thread plays a separate node: only the room row lock keeps them apart.
+        repoRooms.save(new Room("Dermatology"));
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Appointment>>> results = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++){
+            Callable<Optional<Appointment>> booking = () -> {
+                start.await();
+                return bookingRetryTemplate.execute(context -> bookingService.book(appointment("Dermatology", NINE, NINE.plusHours(1))));
+            };
+            results.add(executor.submit(booking));
+        }
+        start.countDown();
+
+        int booked = 0;
+        for (Future<Optional<Appointment>> result : results){
+            if (result.get().isPresent()){
+                booked++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(booked).isEqualTo(1);
+        assertThat(repoAppointments.findAll()).hasSize(1);
+    }
+
+    @Test
+    void should_book_contended_doctor_once_across_rooms() throws Exception {
+        // Every thread books the same doctor into its own room: only the doctor row lock keeps them apart.
+        Doctor doctor = repoDoctors.save(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BookingResult>> results = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++){
+            String roomName = repoRooms.save(new Room("Room " + i)).getRoomName();
+            long patientId = repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com")).getId();
+            Callable<BookingResult> booking = () -> {
+                start.await();
+                return bookingRetryTemplate.execute(context -> bookingService.book(
+                    new BookingRequest(patientId, doctor.getId(), roomName, NINE, NINE.plusHours(1))));
+            };
+            results.add(executor.submit(booking));
+        }
+        start.countDown();
+
+        int booked = 0;
+        for (Future<BookingResult> result : results){
+            if (result.get().getStatus() == BookingResult.Status.BOOKED){
+                booked++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(booked).isEqualTo(1);
+        assertThat(repoAppointments.findAll()).hasSize(1);
+    }
+
+    @Test
+    void should_retry_concurrent_inserts_of_a_new_room() throws Exception {
+        // Disjoint slots in a room nobody created yet: the losing inserts retry and book.
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Appointment>>> results = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++){
+            LocalDateTime startsAt = NINE.plusHours(i);
+            Callable<Optional<Appointment>> booking = () -> {
+                start.await();
+                return bookingRetryTemplate.execute(context -> bookingService.book(appointment("Oncology", startsAt, startsAt.plusHours(1))));
+            };
+            results.add(executor.submit(booking));
+        }
+        start.countDown();
+
+        for (Future<Optional<Appointment>> result : results){
+            assertThat(result.get()).isPresent();
+        }
+        executor.shutdown();
+
+        assertThat(repoRooms.findAll()).hasSize(1);
+        assertThat(repoAppointments.findAll()).hasSize(threads);
+    }
+
+    @Test
+    void should_not_retry_other_integrity_violations(){
+        // Too long for the room name column: a data error, not a concurrent insert
+        Appointment appointment = appointment(String.join("", Collections.nCopies(300, "x")), NINE, NINE.plusHours(1));
+        int[] attempts = {0};
+
+        assertThatThrownBy(() -> bookingRetryTemplate.execute(context -> {
+            attempts[0]++;
+            return bookingService.book(appointment.copy());
+        })).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(attempts[0]).isEqualTo(1);
+    }
+
+    @Test
+    void should_book_batch_and_report_each_item(){
+        bookingService.book(appointment("Dermatology", NINE, NINE.plusHours(1)));
+
+        List<Appointment> batch = new ArrayList<>();
+        batch.add(appointment("Dermatology", NINE.plusMinutes(30), NINE.plusMinutes(90)));
+        batch.add(appointment("Dermatology", NINE.plusMinutes(90), NINE.plusMinutes(150)));
+        batch.add(appointment("Dermatology", NINE.plusHours(1), NINE.plusHours(2)));
+        batch.add(appointment("Dermatology", NINE.plusHours(3), NINE.plusHours(3)));
+        batch.add(appointment("Cardiology", NINE.plusHours(1), NINE.plusHours(2)));
+
+        List<BookingResult> results = bookingService.bookAll(batch);
+
+        // The item at 10:00 starts first, so it wins the slot over the one at 10:30
+        assertThat(results).extracting(BookingResult::getStatus).containsExactly(
+            BookingResult.Status.CONFLICT,
+            BookingResult.Status.CONFLICT,
+            BookingResult.Status.BOOKED,
+            BookingResult.Status.INVALID,
+            BookingResult.Status.BOOKED);
+        assertThat(results.get(2).getId()).isNotNull();
+        assertThat(repoAppointments.findAll()).hasSize(3);
+        assertThat(repoRooms.findAll()).hasSize(2);
+    }
+
+    @Test
+    void should_reject_only_the_batch_items_naming_an_unknown_participant(){
+        Doctor doctor = repoDoctors.save(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Patient patient = repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor unknownDoctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        unknownDoctor.setId(doctor.getId() + 100);
+        Patient unknownPatient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        unknownPatient.setId(patient.getId() + 100);
+
+        List<Appointment> batch = new ArrayList<>();
+        batch.add(new Appointment(patient, doctor, new Room("Dermatology"), NINE, NINE.plusHours(1)));
+        batch.add(new Appointment(patient, unknownDoctor, new Room("Dermatology"), NINE.plusHours(1), NINE.plusHours(2)));
+        batch.add(new Appointment(unknownPatient, doctor, new Room("Cardiology"), NINE.plusHours(2), NINE.plusHours(3)));
+        batch.add(appointment("Cardiology", NINE.plusHours(3), NINE.plusHours(4)));
+
+        List<BookingResult> results = bookingService.bookAll(batch);
+
+        assertThat(results).extracting(BookingResult::getStatus).containsExactly(
+            BookingResult.Status.BOOKED,
+            BookingResult.Status.INVALID,
+            BookingResult.Status.INVALID,
+            BookingResult.Status.BOOKED);
+        assertThat(repoAppointments.findAll()).hasSize(2);
+        assertThat(repoDoctors.count()).isEqualTo(2);
+        assertThat(repoPatients.count()).isEqualTo(2);
+    }
+
+    @Test
+    void should_delete_appointments_in_bulk_and_keep_their_participants(){
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < 50; i++){
+            appointments.add(appointment("Room " + i, NINE.plusHours(i), NINE.plusHours(i + 1)));
+        }
+        repoAppointments.saveAll(appointments);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        bookingService.deleteAll();
+
+        // A single delete, however many rows there are
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(repoAppointments.count()).isZero();
+        assertThat(repoPatients.count()).isEqualTo(50);
+        assertThat(repoDoctors.count()).isEqualTo(50);
+        assertThat(repoRooms.count()).isEqualTo(50);
+    }
+
+    @Test
+    void should_book_by_reference_with_a_single_insert(){
+        Patient patient = repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = repoDoctors.save(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        repoRooms.save(new Room("Dermatology"));
+        // The first booking also allocates a block of appointment ids
+        bookingService.book(new BookingRequest(patient.getId(), doctor.getId(), "Dermatology", NINE, NINE.plusHours(1)));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        BookingResult result = bookingService.book(
+            new BookingRequest(patient.getId(), doctor.getId(), "Dermatology", NINE.plusHours(1), NINE.plusHours(2)));
+
+        assertThat(result.getStatus()).isEqualTo(BookingResult.Status.BOOKED);
+        // Room, doctor and patient locks, three conflict queries and the insert
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(7);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+        assertThat(statistics.getEntityFetchCount()).isZero();
+        assertThat(repoPatients.count()).isEqualTo(1);
+        assertThat(repoDoctors.count()).isEqualTo(1);
+        assertThat(repoAppointments.findById(result.getId()).get().getPatient().getEmail()).isEqualTo("j.olaya@email.com");
+    }
+
+    @Test
+    void should_not_book_by_reference_when_a_participant_is_missing(){
+        Patient patient = repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = repoDoctors.save(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        repoRooms.save(new Room("Dermatology"));
+
+        assertThat(bookingService.book(new BookingRequest(patient.getId(), doctor.getId(), "Oncology", NINE, NINE.plusHours(1))).getStatus())
+            .isEqualTo(BookingResult.Status.INVALID);
+        assertThat(bookingService.book(new BookingRequest(patient.getId() + 1, doctor.getId(), "Dermatology", NINE, NINE.plusHours(1))).getStatus())
+            .isEqualTo(BookingResult.Status.INVALID);
+        assertThat(bookingService.book(new BookingRequest(patient.getId(), doctor.getId(), "Dermatology", NINE, NINE.plusHours(1))).getStatus())
+            .isEqualTo(BookingResult.Status.BOOKED);
+        assertThat(bookingService.book(new BookingRequest(patient.getId(), doctor.getId(), "Dermatology", NINE.plusMinutes(30), NINE.plusHours(1))).getStatus())
+            .isEqualTo(BookingResult.Status.CONFLICT);
+        assertThat(repoAppointments.count()).isEqualTo(1);
+        assertThat(repoRooms.count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_keep_shared_participants_when_an_appointment_is_deleted(){
+        Patient patient = repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = repoDoctors.save(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        repoRooms.save(new Room("Dermatology"));
+        BookingResult first = bookingService.book(new BookingRequest(patient.getId(), doctor.getId(), "Dermatology", NINE, NINE.plusHours(1)));
+        BookingResult second = bookingService.book(
+            new BookingRequest(patient.getId(), doctor.getId(), "Dermatology", NINE.plusHours(1), NINE.plusHours(2)));
+
+        repoAppointments.delete(repoAppointments.findById(first.getId()).get());
+
+        assertThat(repoAppointments.findAll()).extracting(Appointment::getId).containsExactly(second.getId());
+        assertThat(repoPatients.count()).isEqualTo(1);
+        assertThat(repoDoctors.count()).isEqualTo(1);
+        assertThat(repoRooms.count()).isEqualTo(1);
+    }
+}
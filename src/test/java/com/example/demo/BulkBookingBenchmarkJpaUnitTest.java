@@ -0,0 +1,93 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+import com.example.demo.scheduling.BookingResult;
+import com.example.demo.scheduling.BookingService;
+
+/**
+ * Booking throughput one appointment per transaction against a single bulk booking
+ * of the same size. Prints both rates, it asserts only that everything was booked.
+ * Run with -Pbenchmark.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import({BookingService.class, RetryConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkBookingBenchmarkJpaUnitTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 4, 24, 9, 0);
+    private static final int COUNT = 300;
+
+    @Autowired
+    BookingService bookingService;
+
+    @Autowired
+    AppointmentRepository repoAppointments;
+
+    @Autowired
+    RoomRepository repoRooms;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    PatientRepository repoPatients;
+
+    @AfterEach
+    void cleanUp(){
+        repoAppointments.deleteAllInBatch();
+        repoRooms.deleteAllInBatch();
+        repoDoctors.deleteAllInBatch();
+        repoPatients.deleteAllInBatch();
+    }
+
+    private static Appointment appointment(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt){
+        return new Appointment(
+            new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+            new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"),
+            new Room(roomName),
+            startsAt, finishesAt);
+    }
+
+    @Test
+    void should_book_one_by_one_and_in_bulk(){
+        long started = System.nanoTime();
+        for (int i = 0; i < COUNT; i++){
+            bookingService.book(appointment("Room " + (i % 10), NINE.plusHours(i), NINE.plusHours(i + 1)));
+        }
+        long single = System.nanoTime() - started;
+
+        List<Appointment> batch = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++){
+            batch.add(appointment("Room " + (i % 10), NINE.plusHours(COUNT + i), NINE.plusHours(COUNT + i + 1)));
+        }
+        started = System.nanoTime();
+        List<BookingResult> results = bookingService.bookAll(batch);
+        long bulk = System.nanoTime() - started;
+
+        System.out.printf("one by one: %.0f bookings/s, bulk: %.0f bookings/s%n",
+            COUNT * 1e9 / single, COUNT * 1e9 / bulk);
+
+        assertThat(results).allMatch(result -> result.getStatus() == BookingResult.Status.BOOKED);
+        assertThat(repoAppointments.count()).isEqualTo(2 * COUNT);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.controllers.ChangeVersions;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import(ChangeVersions.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChangeVersionsJpaUnitTest {
+
+    @Autowired
+    ChangeVersions changeVersions;
+
+    @Autowired
+    AutowireCapableBeanFactory beanFactory;
+
+    @Test
+    void should_see_changes_made_through_another_instance_after_both_refresh(){
+        // A second instance over the same database, as on another node
+        ChangeVersions otherNode = beanFactory.createBean(ChangeVersions.class);
+        String doctors = changeVersions.etag(ChangeVersions.Type.DOCTORS);
+        String rooms = changeVersions.etag(ChangeVersions.Type.ROOMS);
+        assertThat(otherNode.etag(ChangeVersions.Type.DOCTORS)).isEqualTo(doctors);
+
+        otherNode.changed(ChangeVersions.Type.DOCTORS);
+
+        assertThat(otherNode.etag(ChangeVersions.Type.DOCTORS)).isNotEqualTo(doctors);
+        assertThat(changeVersions.etag(ChangeVersions.Type.DOCTORS)).isEqualTo(doctors);
+
+        // Refresh interval 1: the other instance adds its change to the table
+        otherNode.refresh();
+        assertThat(changeVersions.etag(ChangeVersions.Type.DOCTORS)).isEqualTo(doctors);
+
+        // Refresh interval 2: this instance reads it
+        changeVersions.refresh();
+        assertThat(changeVersions.etag(ChangeVersions.Type.DOCTORS)).isNotEqualTo(doctors);
+        assertThat(changeVersions.etag(ChangeVersions.Type.DOCTORS)).isEqualTo(otherNode.etag(ChangeVersions.Type.DOCTORS));
+        assertThat(changeVersions.etag(ChangeVersions.Type.ROOMS)).isEqualTo(rooms);
+    }
+
+    @Test
+    void should_tag_changes_of_different_instances_differently_until_they_are_shared(){
+        ChangeVersions otherNode = beanFactory.createBean(ChangeVersions.class);
+
+        changeVersions.changed(ChangeVersions.Type.ROOMS);
+        otherNode.changed(ChangeVersions.Type.ROOMS);
+
+        // Same count on both, but each counts a different write
+        assertThat(changeVersions.version(ChangeVersions.Type.ROOMS)).isEqualTo(otherNode.version(ChangeVersions.Type.ROOMS));
+        assertThat(changeVersions.etag(ChangeVersions.Type.ROOMS)).isNotEqualTo(otherNode.etag(ChangeVersions.Type.ROOMS));
+
+        changeVersions.refresh();
+        otherNode.refresh();
+        changeVersions.refresh();
+        assertThat(changeVersions.etag(ChangeVersions.Type.ROOMS)).isEqualTo(otherNode.etag(ChangeVersions.Type.ROOMS));
+    }
+
+    @Test
+    void should_never_hand_out_an_older_version_while_refreshing(){
+        long before = changeVersions.version(ChangeVersions.Type.PATIENTS);
+
+        changeVersions.changed(ChangeVersions.Type.PATIENTS);
+        changeVersions.changed(ChangeVersions.Type.PATIENTS);
+        assertThat(changeVersions.version(ChangeVersions.Type.PATIENTS)).isEqualTo(before + 2);
+
+        changeVersions.refresh();
+        assertThat(changeVersions.version(ChangeVersions.Type.PATIENTS)).isEqualTo(before + 2);
+        changeVersions.refresh();
+        assertThat(changeVersions.version(ChangeVersions.Type.PATIENTS)).isEqualTo(before + 2);
+    }
+}
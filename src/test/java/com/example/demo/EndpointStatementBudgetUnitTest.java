@@ -0,0 +1,412 @@
+package com.example.demo;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.controllers.ChangeVersions;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.scheduling.AppointmentIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * SQL statement budget of every endpoint, against APPOINTMENTS appointments that each
+ * have a doctor, patient and room of their own. A query per appointment or a delete per
+ * row goes over budget and fails the build. ETags come from memory, so a conditional
+ * GET of unchanged data runs none. The counter refresh is pushed out of the way, it
+ * runs on its own schedule and would be counted against whichever test is running.
+ */
+@SpringBootTest(properties = {"etag.refresh-ms=3600000", "booking.lookback-refresh-ms=3600000"})
+@AutoConfigureMockMvc
+@Import(StatementCounter.class)
+@ExtendWith(StatementBudgetExtension.class)
+class EndpointStatementBudgetUnitTest {
+
+    private static final int APPOINTMENTS = 5;
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 4, 24, 9, 0);
+    private static final String WINDOW = "?from=08:00 24/04/2023&to=20:00 24/04/2023";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private AppointmentIndex appointmentIndex;
+
+    @Autowired
+    private ChangeVersions changeVersions;
+
+    private long[] appointmentIds;
+    private long[] doctorIds;
+    private long[] patientIds;
+    private long unassignedDoctorId;
+    private long unassignedPatientId;
+
+    @BeforeEach
+    void setUp(){
+        appointmentIds = new long[APPOINTMENTS];
+        doctorIds = new long[APPOINTMENTS];
+        patientIds = new long[APPOINTMENTS];
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < APPOINTMENTS; i++){
+                Patient patient = new Patient("Jose Luis", "Olaya" + i, 37, "j.olaya@email.com");
+                Doctor doctor = new Doctor("Perla", "Amalia" + i, 24, "p.amalia@hospital.accwe");
+                Room room = new Room("Room " + i);
+                Appointment appointment = new Appointment(patient, doctor, room, NINE.plusHours(i), NINE.plusHours(i + 1));
+                entityManager.persist(appointment);
+                appointmentIds[i] = appointment.getId();
+                doctorIds[i] = doctor.getId();
+                patientIds[i] = patient.getId();
+            }
+            Doctor doctor = new Doctor("Miren", "Iniesta", 24, "m.iniesta@hospital.accwe");
+            Patient patient = new Patient("Paulino", "Antunez", 37, "p.antunez@email.com");
+            entityManager.persist(doctor);
+            entityManager.persist(patient);
+            entityManager.persist(new Room("Unassigned"));
+            unassignedDoctorId = doctor.getId();
+            unassignedPatientId = patient.getId();
+        });
+        entityManager.getEntityManagerFactory().getCache().evictAll();
+        appointmentIndex.rebuild();
+    }
+
+    @AfterEach
+    void cleanUp(){
+        appointmentRepository.deleteAllInBatch();
+        doctorRepository.deleteAllInBatch();
+        patientRepository.deleteAllInBatch();
+        roomRepository.deleteAllInBatch();
+        appointmentIndex.clear();
+    }
+
+    private String newAppointment(int hour) throws Exception {
+        return objectMapper.writeValueAsString(new Appointment(
+            new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+            new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"),
+            new Room("Oncology"), NINE.plusHours(hour), NINE.plusHours(hour + 1)));
+    }
+
+    @Test
+    @DisplayName("GET /api/doctors")
+    @StatementBudget(1)
+    void getDoctors() throws Exception {
+        mockMvc.perform(get("/api/doctors")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/doctors, unchanged since the last poll")
+    @StatementBudget(0)
+    void getUnchangedDoctors() throws Exception {
+        mockMvc.perform(get("/api/doctors").header("If-None-Match", changeVersions.etag(ChangeVersions.Type.DOCTORS)))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("GET /api/doctors?limit=")
+    @StatementBudget(1)
+    void getDoctorsPage() throws Exception {
+        mockMvc.perform(get("/api/doctors?limit=2")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/doctors/{id}")
+    @StatementBudget(1)
+    void getDoctor() throws Exception {
+        mockMvc.perform(get("/api/doctors/" + doctorIds[0])).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("POST /api/doctor")
+    @StatementBudget(1)
+    void createDoctor() throws Exception {
+        mockMvc.perform(post("/api/doctor").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"))))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    @DisplayName("DELETE /api/doctors/{id}")
+    @StatementBudget(2)
+    void deleteDoctor() throws Exception {
+        mockMvc.perform(delete("/api/doctors/" + unassignedDoctorId)).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/patients")
+    @StatementBudget(1)
+    void getPatients() throws Exception {
+        mockMvc.perform(get("/api/patients")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/patients?limit=")
+    @StatementBudget(1)
+    void getPatientsPage() throws Exception {
+        mockMvc.perform(get("/api/patients?limit=2")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/patients/{id}")
+    @StatementBudget(1)
+    void getPatient() throws Exception {
+        mockMvc.perform(get("/api/patients/" + patientIds[0])).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("POST /api/patient")
+    @StatementBudget(1)
+    void createPatient() throws Exception {
+        mockMvc.perform(post("/api/patient").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"))))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    @DisplayName("DELETE /api/patients/{id}")
+    @StatementBudget(2)
+    void deletePatient() throws Exception {
+        mockMvc.perform(delete("/api/patients/" + unassignedPatientId)).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/rooms")
+    @StatementBudget(1)
+    void getRooms() throws Exception {
+        mockMvc.perform(get("/api/rooms")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/rooms?limit=")
+    @StatementBudget(1)
+    void getRoomsPage() throws Exception {
+        mockMvc.perform(get("/api/rooms?limit=2")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/rooms/{roomName}")
+    @StatementBudget(1)
+    void getRoom() throws Exception {
+        mockMvc.perform(get("/api/rooms/Room 0")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("POST /api/room")
+    @StatementBudget(2)
+    void createRoom() throws Exception {
+        mockMvc.perform(post("/api/room").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Room("Oncology"))))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    @DisplayName("DELETE /api/rooms/{roomName}")
+    @StatementBudget(2)
+    void deleteRoom() throws Exception {
+        mockMvc.perform(delete("/api/rooms/Unassigned")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/appointments")
+    @StatementBudget(1)
+    void getAppointments() throws Exception {
+        mockMvc.perform(get("/api/appointments")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/appointments?limit=")
+    @StatementBudget(1)
+    void getAppointmentsPage() throws Exception {
+        mockMvc.perform(get("/api/appointments?limit=2")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/appointments?view=flat")
+    @StatementBudget(1)
+    void getFlatAppointments() throws Exception {
+        mockMvc.perform(get("/api/appointments?view=flat")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/appointments as NDJSON")
+    @StatementBudget(1)
+    void exportAppointments() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/appointments").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/appointments/{id}")
+    @StatementBudget(1)
+    void getAppointment() throws Exception {
+        mockMvc.perform(get("/api/appointments/" + appointmentIds[0])).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/rooms/{roomName}/appointments")
+    @StatementBudget(1)
+    void getRoomAppointments() throws Exception {
+        mockMvc.perform(get("/api/rooms/Room 0/appointments" + WINDOW)).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/doctors/{id}/appointments")
+    @StatementBudget(1)
+    void getDoctorAppointments() throws Exception {
+        mockMvc.perform(get("/api/doctors/" + doctorIds[0] + "/appointments" + WINDOW)).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/patients/{id}/appointments")
+    @StatementBudget(1)
+    void getPatientAppointments() throws Exception {
+        mockMvc.perform(get("/api/patients/" + patientIds[0] + "/appointments" + WINDOW)).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/slots")
+    @StatementBudget(2)
+    void getFreeSlots() throws Exception {
+        mockMvc.perform(get("/api/slots" + WINDOW + "&room=Room 0&doctor=" + doctorIds[1] + "&duration=30"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/rooms/{roomName}/free")
+    @StatementBudget(0)
+    void isRoomFree() throws Exception {
+        mockMvc.perform(get("/api/rooms/Room 0/free" + WINDOW)).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /api/occupancy")
+    @StatementBudget(0)
+    void getOccupancy() throws Exception {
+        mockMvc.perform(get("/api/occupancy?date=24/04/2023")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("POST /api/appointment")
+    @StatementBudget(7)
+    void createAppointment() throws Exception {
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON).content(newAppointment(0)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("POST /api/appointments")
+    @StatementBudget(7)
+    void createAppointmentByReference() throws Exception {
+        String booking = String.format(
+            "{\"patientId\":%d,\"doctorId\":%d,\"roomName\":\"Unassigned\",\"startsAt\":\"09:00 24/04/2023\",\"finishesAt\":\"10:00 24/04/2023\"}",
+            unassignedPatientId, unassignedDoctorId);
+        mockMvc.perform(post("/api/appointments").contentType(MediaType.APPLICATION_JSON).content(booking))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    @DisplayName("POST /api/appointments/bulk")
+    @StatementBudget(13)
+    void createAppointments() throws Exception {
+        String appointments = "[" + newAppointment(0) + "," + newAppointment(1) + "," + newAppointment(2) + "]";
+        mockMvc.perform(post("/api/appointments/bulk").contentType(MediaType.APPLICATION_JSON).content(appointments))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("DELETE /api/appointments/{id}")
+    @StatementBudget(2)
+    void deleteAppointment() throws Exception {
+        mockMvc.perform(delete("/api/appointments/" + appointmentIds[0])).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("DELETE /api/appointments")
+    @StatementBudget(1)
+    void deleteAppointments() throws Exception {
+        mockMvc.perform(delete("/api/appointments")).andExpect(status().isOk());
+    }
+
+    /** The bulk deletes of participants, which appointments would otherwise still reference. */
+    @Nested
+    class WithoutAppointments {
+
+        @BeforeEach
+        void deleteAppointments(){
+            appointmentRepository.deleteAllInBatch();
+            appointmentIndex.clear();
+        }
+
+        @Test
+        @DisplayName("DELETE /api/doctors")
+        @StatementBudget(1)
+        void deleteDoctors() throws Exception {
+            mockMvc.perform(delete("/api/doctors")).andExpect(status().isOk());
+        }
+
+        @Test
+        @DisplayName("DELETE /api/patients")
+        @StatementBudget(1)
+        void deletePatients() throws Exception {
+            mockMvc.perform(delete("/api/patients")).andExpect(status().isOk());
+        }
+
+        @Test
+        @DisplayName("DELETE /api/rooms")
+        @StatementBudget(1)
+        void deleteRooms() throws Exception {
+            mockMvc.perform(delete("/api/rooms")).andExpect(status().isOk());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import(CacheConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EntityCacheJpaUnitTest {
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    RoomRepository repoRooms;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void clearStatistics(){
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanUp(){
+        repoDoctors.deleteAll();
+        repoRooms.deleteAll();
+    }
+
+    @Test
+    void should_read_doctor_from_cache_without_sql(){
+        long id = repoDoctors.save(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe")).getId();
+        statistics.clear();
+
+        assertThat(repoDoctors.findById(id)).isPresent();
+        assertThat(repoDoctors.findById(id)).isPresent();
+
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void should_read_room_by_name_from_cache(){
+        repoRooms.save(new Room("Dermatology"));
+        statistics.clear();
+
+        assertThat(repoRooms.findByRoomName("Dermatology")).isPresent();
+
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void should_see_updates_and_deletes_through_the_cache(){
+        Doctor doctor = repoDoctors.save(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        assertThat(repoDoctors.findById(doctor.getId())).isPresent();
+
+        doctor.setEmail("perla.amalia@hospital.accwe");
+        repoDoctors.save(doctor);
+
+        assertThat(repoDoctors.findById(doctor.getId()).get().getEmail()).isEqualTo("perla.amalia@hospital.accwe");
+
+        repoDoctors.deleteById(doctor.getId());
+
+        assertThat(repoDoctors.findById(doctor.getId())).isEmpty();
+    }
+
+    @Test
+    void should_not_serve_doctors_from_cache_after_bulk_delete(){
+        long id = repoDoctors.save(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe")).getId();
+        assertThat(repoDoctors.findById(id)).isPresent();
+
+        repoDoctors.deleteAllInBatch();
+
+        assertThat(repoDoctors.findById(id)).isEmpty();
+    }
+
+    @Nested
+    @TestPropertySource(properties = "cache.entities.enabled=false")
+    class Disabled {
+
+        // The enclosing instance is wired from the context with the cache enabled
+        @Autowired
+        EntityManagerFactory entityManagerFactory;
+
+        @Autowired
+        DoctorRepository repoDoctors;
+
+        @Test
+        void should_have_no_cache_regions(){
+            SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+            long id = repoDoctors.save(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe")).getId();
+            assertThat(repoDoctors.findById(id)).isPresent();
+
+            assertThat(sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()).isFalse();
+            CacheImplementor cache = sessionFactory.getCache().unwrap(CacheImplementor.class);
+            for (String region : CacheConfiguration.ENTITY_REGIONS){
+                assertThat(cache.getRegion(region)).isNull();
+            }
+            assertThat(cache.containsEntity(Doctor.class, id)).isFalse();
+        }
+    }
+}
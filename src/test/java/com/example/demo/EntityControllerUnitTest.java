@@ -1,6 +1,13 @@
 
 package com.example.demo;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -9,25 +16,36 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import com.example.demo.controllers.*;
 import com.example.demo.repositories.*;
 import com.example.demo.entities.*;
+import com.example.demo.views.PersonView;
+import com.example.demo.views.RoomView;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 
 
 @WebMvcTest(DoctorController.class)
+@AutoConfigureDataJpa
+@Import({ChangeVersions.class, RetryConfiguration.class})
 class DoctorControllerUnitTest{
 
     @MockBean
@@ -45,7 +63,7 @@ class DoctorControllerUnitTest{
     void shouldGetNoDoctors() throws Exception{
         List<Doctor> doctors = new ArrayList<Doctor>();
         
-        when(doctorRepository.findAll()).thenReturn(doctors);
+        when(doctorRepository.findAllViews()).thenReturn(doctors.stream().map(PersonView::of).collect(Collectors.toList()));
         
         mockMvc.perform(get(baseUrl))
             .andExpect(status().isNoContent());
@@ -60,12 +78,50 @@ class DoctorControllerUnitTest{
         doctors.add(d1);
         doctors.add(d2);
 
-        when(doctorRepository.findAll()).thenReturn(doctors);
+        when(doctorRepository.findAllViews()).thenReturn(doctors.stream().map(PersonView::of).collect(Collectors.toList()));
 
         mockMvc.perform(get(baseUrl))
             .andExpect(status().isOk());
     }
 
+    @Test
+    void shouldGetFirstPageOfDoctorsWithNextLink() throws Exception{
+        Doctor d1 = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Doctor d2 = new Doctor ("Miren", "Iniesta", 24, "m.iniesta@hospital.accwe");
+        d1.setId(1);
+        d2.setId(2);
+
+        when(doctorRepository.findPageAfter(eq(Long.MIN_VALUE), any(Pageable.class))).thenReturn(Arrays.asList(PersonView.of(d1), PersonView.of(d2)));
+
+        mockMvc.perform(get(baseUrl).param("limit", "2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(header().string("Link", containsString("after=Mg")));
+    }
+
+    @Test
+    void shouldGetLastPageOfDoctorsWithoutNextLink() throws Exception{
+        Doctor d3 = new Doctor ("Reyna", "Cayetana", 28, "r.cayetana@hospital.accwe");
+        d3.setId(3);
+
+        // "Mg" is the cursor of the doctor with id 2
+        when(doctorRepository.findPageAfter(eq(2L), any(Pageable.class))).thenReturn(Arrays.asList(PersonView.of(d3)));
+
+        mockMvc.perform(get(baseUrl).param("limit", "2").param("after", "Mg"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void shouldNotGetDoctorsPageWithInvalidCursorOrLimit() throws Exception{
+        mockMvc.perform(get(baseUrl).param("after", "not a cursor"))
+            .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get(baseUrl).param("limit", "0"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldGetDoctorById() throws Exception{
         Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
@@ -108,6 +164,49 @@ class DoctorControllerUnitTest{
             .andExpect(status().isOk());
     }
 
+    @Test
+    void shouldRetryDoctorDeleteThatLostToAConcurrentDelete() throws Exception{
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(1);
+
+        // The first attempt reads the row and loses the delete, the retry finds it gone
+        when(doctorRepository.findById(doctor.getId())).thenReturn(Optional.of(doctor), Optional.empty());
+        doThrow(new ObjectOptimisticLockingFailureException(Doctor.class, doctor.getId()))
+            .when(doctorRepository).delete(doctor);
+
+        mockMvc.perform(delete(baseUrl + doctor.getId()))
+            .andExpect(status().isNotFound());
+        verify(doctorRepository, times(2)).findById(doctor.getId());
+    }
+
+    @Test
+    void shouldAnswerConflictWhenDoctorDeleteKeepsConflicting() throws Exception{
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(1);
+
+        when(doctorRepository.findById(doctor.getId())).thenReturn(Optional.of(doctor));
+        doThrow(new ObjectOptimisticLockingFailureException(Doctor.class, doctor.getId()))
+            .when(doctorRepository).delete(doctor);
+
+        mockMvc.perform(delete(baseUrl + doctor.getId()))
+            .andExpect(status().isConflict());
+        verify(doctorRepository, times(3)).delete(doctor);
+    }
+
+    @Test
+    void shouldNotExposeDoctorVersion() throws Exception{
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(1);
+        doctor.setVersion(3);
+
+        when(doctorRepository.findById(doctor.getId())).thenReturn(Optional.of(doctor));
+
+        mockMvc.perform(get(baseUrl + doctor.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.firstName").value("Perla"))
+            .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
     @Test
     void shouldNotDeleteDoctor() throws Exception{
         long id = 9;
@@ -131,10 +230,43 @@ class DoctorControllerUnitTest{
             .content(objectMapper.writeValueAsString(doctor)))
             .andExpect(status().isCreated());
     }
+
+    @Test
+    void shouldAnswerUnchangedDoctorsWithNotModified() throws Exception{
+        when(doctorRepository.findAllViews()).thenReturn(Arrays.asList(PersonView.of(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"))));
+
+        MvcResult first = mockMvc.perform(get(baseUrl))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("ETag"))
+            .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+
+        mockMvc.perform(get(baseUrl).header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        verify(doctorRepository, times(1)).findAllViews();
+    }
+
+    @Test
+    void shouldChangeDoctorsEtagAfterCreate() throws Exception{
+        String etag = mockMvc.perform(get(baseUrl)).andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(post("/api/doctor")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"))))
+            .andExpect(status().isCreated());
+
+        mockMvc.perform(get(baseUrl).header("If-None-Match", etag))
+            .andExpect(status().isNoContent())
+            .andExpect(header().string("ETag", not(etag)));
+    }
 }
 
 
 @WebMvcTest(PatientController.class)
+@AutoConfigureDataJpa
+@Import({ChangeVersions.class, RetryConfiguration.class})
 class PatientControllerUnitTest{
 
     @MockBean
@@ -152,7 +284,7 @@ class PatientControllerUnitTest{
     void shouldGetNoPatients() throws Exception{
         List<Patient> patients = new ArrayList<Patient>();
 
-        when(patientRepository.findAll()).thenReturn(patients);
+        when(patientRepository.findAllViews()).thenReturn(patients.stream().map(PersonView::of).collect(Collectors.toList()));
 
         mockMvc.perform(get(baseUrl))
             .andExpect(status().isNoContent());
@@ -167,7 +299,7 @@ class PatientControllerUnitTest{
         patients.add(p1);
         patients.add(p2);
 
-        when(patientRepository.findAll()).thenReturn(patients);
+        when(patientRepository.findAllViews()).thenReturn(patients.stream().map(PersonView::of).collect(Collectors.toList()));
 
         mockMvc.perform(get(baseUrl))
             .andExpect(status().isOk());
@@ -241,6 +373,8 @@ class PatientControllerUnitTest{
 }
 
 @WebMvcTest(RoomController.class)
+@AutoConfigureDataJpa
+@Import({ChangeVersions.class, RetryConfiguration.class})
 class RoomControllerUnitTest{
 
     @MockBean
@@ -258,7 +392,7 @@ class RoomControllerUnitTest{
     void shouldGetNoRooms() throws Exception{
         List<Room> rooms = new ArrayList<Room>();
 
-        when(roomRepository.findAll()).thenReturn(rooms);
+        when(roomRepository.findAllViews()).thenReturn(rooms.stream().map(RoomView::of).collect(Collectors.toList()));
 
         mockMvc.perform(get(baseUrl))
             .andExpect(status().isNoContent());
@@ -273,7 +407,7 @@ class RoomControllerUnitTest{
         rooms.add(r1);
         rooms.add(r2);
 
-        when(roomRepository.findAll()).thenReturn(rooms);
+        when(roomRepository.findAllViews()).thenReturn(rooms.stream().map(RoomView::of).collect(Collectors.toList()));
 
         mockMvc.perform(get(baseUrl))
             .andExpect(status().isOk());
@@ -344,4 +478,22 @@ class RoomControllerUnitTest{
             .content(objectMapper.writeValueAsString(room)))
             .andExpect(status().isCreated());
     }
+
+    @Test
+    void shouldChangeRoomEtagAfterDelete() throws Exception{
+        when(roomRepository.findByRoomName("Dermatology")).thenReturn(Optional.of(new Room("Dermatology")));
+
+        String etag = mockMvc.perform(get(baseUrl + "/Dermatology"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get(baseUrl + "/Dermatology").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+        mockMvc.perform(delete(baseUrl + "/Dermatology"))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(get(baseUrl + "/Dermatology").header("If-None-Match", etag))
+            .andExpect(status().isOk());
+    }
 }
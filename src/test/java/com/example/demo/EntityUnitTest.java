@@ -125,6 +125,18 @@ class EntityUnitTest {
 
     }
 
+    @Test
+    void shouldIncrementVersionOnUpdate(){
+        Doctor d1 = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        entityManager.persistAndFlush(d1);
+        long version = d1.getVersion();
+
+        d1.setEmail("p.amalia@hospital.accwe.es");
+        entityManager.flush();
+
+        assertThat(d1.getVersion()).isEqualTo(version + 1);
+    }
+
     @Test
     void appointmentsOverlapsWhenStartAtTheSameTime() {
         Appointment a1 = new Appointment(
@@ -227,6 +239,73 @@ class EntityUnitTest {
         assertThat(a1.overlaps(a2)).isFalse();
     }
 
+    @Test
+    void appointmentsOverlapsWhenOneContainsTheOther() {
+        Appointment a1 = new Appointment(
+            new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+            new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"),
+            new Room("Dermatology"),
+            LocalDateTime.parse("19:30 24/04/2023", formatter),
+            LocalDateTime.parse("20:00 24/04/2023", formatter)
+        );
+        Appointment a2 = new Appointment(
+            new Patient("Another Patient", "Lastname", 25, "another@email.com"),
+            new Doctor("Another Doctor", "DocLastName", 30, "another.doctor@hospital.accwe"),
+            new Room("Dermatology"),
+            LocalDateTime.parse("19:00 24/04/2023", formatter),
+            LocalDateTime.parse("21:00 24/04/2023", formatter)
+        );
+
+        assertThat(a1.overlaps(a2)).isTrue();
+        assertThat(a2.overlaps(a1)).isTrue();
+    }
+
+    @Test
+    void appointmentsWithSameDoctorInDifferentRoomsOverlaps() {
+        Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(1);
+
+        Appointment a1 = new Appointment(
+            new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+            doctor,
+            new Room("Dermatology"),
+            LocalDateTime.parse("19:00 24/04/2023", formatter),
+            LocalDateTime.parse("20:00 24/04/2023", formatter)
+        );
+        Appointment a2 = new Appointment(
+            new Patient("Another Patient", "Lastname", 25, "another@email.com"),
+            doctor,
+            new Room("Cardiology"),
+            LocalDateTime.parse("19:30 24/04/2023", formatter),
+            LocalDateTime.parse("20:30 24/04/2023", formatter)
+        );
+
+        assertThat(a1.overlaps(a2)).isTrue();
+    }
+
+    @Test
+    void appointmentsWithSamePatientInDifferentRoomsOverlaps() {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        patient.setId(1);
+
+        Appointment a1 = new Appointment(
+            patient,
+            new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"),
+            new Room("Dermatology"),
+            LocalDateTime.parse("19:00 24/04/2023", formatter),
+            LocalDateTime.parse("20:00 24/04/2023", formatter)
+        );
+        Appointment a2 = new Appointment(
+            patient,
+            new Doctor("Another Doctor", "DocLastName", 30, "another.doctor@hospital.accwe"),
+            new Room("Cardiology"),
+            LocalDateTime.parse("19:30 24/04/2023", formatter),
+            LocalDateTime.parse("20:30 24/04/2023", formatter)
+        );
+
+        assertThat(a1.overlaps(a2)).isTrue();
+    }
+
     @Test
     void appointmentsIdCanBeSet() {        
         Appointment appointment = new Appointment(
@@ -0,0 +1,94 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.scheduling.BookedSlot;
+import com.example.demo.scheduling.FreeSlot;
+import com.example.demo.scheduling.FreeSlots;
+
+class FreeSlotsUnitTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 4, 24, 9, 0);
+    private static final Duration HOUR = Duration.ofHours(1);
+
+    private static BookedSlot busy(int startMinute, int finishMinute){
+        return new BookedSlot(0, null, NINE.plusMinutes(startMinute), NINE.plusMinutes(finishMinute));
+    }
+
+    @Test
+    void shouldFillEmptyWindowBackToBack(){
+        List<FreeSlot> slots = FreeSlots.find(NINE, NINE.plusHours(3), HOUR, 10, Collections.emptyList());
+
+        assertThat(slots).extracting(FreeSlot::getStartsAt).containsExactly(NINE, NINE.plusHours(1), NINE.plusHours(2));
+    }
+
+    @Test
+    void shouldSkipGapsShorterThanDuration(){
+        List<BookedSlot> room = Arrays.asList(busy(-30, 30), busy(60, 120));
+
+        List<FreeSlot> slots = FreeSlots.find(NINE, NINE.plusHours(4), HOUR, 10, Collections.singletonList(room));
+
+        assertThat(slots).extracting(FreeSlot::getStartsAt).containsExactly(NINE.plusHours(2), NINE.plusHours(3));
+    }
+
+    @Test
+    void shouldMergeRoomAndDoctorSchedules(){
+        List<BookedSlot> room = Arrays.asList(busy(0, 60), busy(180, 240));
+        List<BookedSlot> doctor = Arrays.asList(busy(30, 150));
+
+        List<FreeSlot> slots = FreeSlots.find(NINE, NINE.plusHours(6), HOUR, 2, Arrays.asList(room, doctor));
+
+        assertThat(slots).extracting(FreeSlot::getStartsAt).containsExactly(NINE.plusHours(4), NINE.plusHours(5));
+    }
+
+    @Test
+    void shouldMatchMinuteByMinuteScanOnRandomSchedules(){
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++){
+            List<List<BookedSlot>> busy = new ArrayList<>();
+            boolean[] taken = new boolean[24 * 60];
+            for (int list = 0; list < 2; list++){
+                List<BookedSlot> appointments = new ArrayList<>();
+                int start = random.nextInt(60);
+                while (start < taken.length){
+                    int finish = Math.min(taken.length, start + 15 + random.nextInt(90));
+                    appointments.add(busy(start, finish));
+                    for (int minute = start; minute < finish; minute++){
+                        taken[minute] = true;
+                    }
+                    start = finish + random.nextInt(180);
+                }
+                busy.add(appointments);
+            }
+            int duration = 15 + random.nextInt(60);
+
+            List<LocalDateTime> expected = new ArrayList<>();
+            int minute = 0;
+            while (minute + duration <= taken.length){
+                boolean free = true;
+                for (int m = minute; m < minute + duration && free; m++){
+                    free = !taken[m];
+                }
+                if (free){
+                    expected.add(NINE.plusMinutes(minute));
+                    minute += duration;
+                } else {
+                    minute++;
+                }
+            }
+
+            List<FreeSlot> slots = FreeSlots.find(NINE, NINE.plusMinutes(taken.length), Duration.ofMinutes(duration), 1000, busy);
+            assertThat(slots).extracting(FreeSlot::getStartsAt).containsExactlyElementsOf(expected);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import com.example.demo.entities.Patient;
+import com.example.demo.repositories.PatientRepository;
+
+/**
+ * Insert throughput with one id round trip per row, as with the old shared
+ * hibernate_sequence, against ids pooled in blocks of 50. Run with -Pbenchmark.
+ * To run it against MySQL, pass -Dbenchmark.datasource.url, the credentials, the
+ * driver class and the MySQL dialect as system properties.
+ */
+@Tag("benchmark")
+class IdGenerationBenchmarkJpaUnitTest {
+
+    private static final int ROWS = 5000;
+
+    abstract static class Inserts {
+
+        @Autowired
+        PatientRepository repoPatients;
+
+        @Autowired
+        EntityManagerFactory entityManagerFactory;
+
+        long insert(String label){
+            // Warm up the JIT before measuring
+            repoPatients.saveAll(patients());
+            repoPatients.flush();
+
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            statistics.clear();
+
+            List<Patient> patients = patients();
+            long started = System.nanoTime();
+            repoPatients.saveAll(patients);
+            repoPatients.flush();
+            long elapsed = System.nanoTime() - started;
+
+            System.out.printf("%s: %.0f inserts/s, %d statements%n",
+                label, ROWS * 1e9 / elapsed, statistics.getPrepareStatementCount());
+            return statistics.getPrepareStatementCount();
+        }
+
+        private static List<Patient> patients(){
+            List<Patient> patients = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++){
+                patients.add(new Patient("Jose Luis", "Olaya", 37, "j.olaya" + i + "@email.com"));
+            }
+            return patients;
+        }
+    }
+
+    @Nested
+    @DataJpaTest(properties = {
+        "spring.datasource.url=${benchmark.datasource.url:jdbc:h2:mem:ids-single;LOCK_TIMEOUT=3000}",
+        "spring.jpa.properties.demo.id.allocation_size=1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+    })
+    @AutoConfigureTestDatabase(replace=Replace.NONE)
+    class OneIdPerRoundTrip extends Inserts {
+
+        @Test
+        void insert_patients(){
+            assertThat(insert("allocation size 1")).isGreaterThanOrEqualTo(ROWS);
+        }
+    }
+
+    @Nested
+    @DataJpaTest(properties = {
+        "spring.datasource.url=${benchmark.datasource.url:jdbc:h2:mem:ids-pooled;LOCK_TIMEOUT=3000}",
+        "spring.jpa.properties.demo.id.allocation_size=50",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+    })
+    @AutoConfigureTestDatabase(replace=Replace.NONE)
+    class PooledIds extends Inserts {
+
+        @Test
+        void insert_patients(){
+            assertThat(insert("allocation size 50")).isLessThan(ROWS);
+        }
+    }
+}
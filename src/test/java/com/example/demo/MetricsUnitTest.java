@@ -0,0 +1,72 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = "management.endpoints.web.exposure.include=prometheus")
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class MetricsUnitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        // The in-memory database outlives this context, leave it empty for the other tests
+        mockMvc.perform(delete("/api/appointments")).andExpect(status().isOk());
+        mockMvc.perform(delete("/api/doctors")).andExpect(status().isOk());
+        mockMvc.perform(delete("/api/patients")).andExpect(status().isOk());
+        mockMvc.perform(delete("/api/rooms")).andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldExportEndpointRepositoryAndOverlapMetrics() throws Exception {
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        Appointment appointment = new Appointment(
+            new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+            new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"),
+            new Room("Metrics"), startsAt, startsAt.plusHours(1));
+        String json = objectMapper.writeValueAsString(appointment);
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isNotAcceptable());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+            .contains("http_server_requests_seconds_count{exception=\"None\",method=\"POST\",outcome=\"SUCCESS\",status=\"200\",uri=\"/api/appointment\"")
+            .contains("spring_data_repository_invocations_seconds_count{exception=\"None\",method=\"save\",repository=\"AppointmentRepository\"")
+            .contains("booking_overlap_check_seconds_count{check=\"index\",result=\"free\",}")
+            .contains("booking_overlap_check_seconds_count{check=\"index\",result=\"conflict\",}")
+            .contains("booking_overlap_check_seconds_count{check=\"database\",result=\"free\",}")
+            .contains("booking_overlap_candidates_bucket");
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.persistence.EntityManager;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.scheduling.AppointmentIndex;
+
+/**
+ * Boots the application on an in-memory H2 database, seeds it, and drives a mixed
+ * workload of bookings, lookups, lists and deletes from many concurrent clients.
+ * Prints throughput, latency percentiles and unexpected statuses per endpoint, and writes each endpoint's
+ * HdrHistogram percentile distribution to target/load-test/ for comparing builds.
+ *
+ * Run with -Pbenchmark -Dtest=MixedWorkloadBenchmarkUnitTest. Sizes are system
+ * properties, e.g. -Dload.appointments=100000 -Dload.clients=256:
+ * load.patients, load.doctors, load.rooms, load.appointments, load.clients,
+ * load.warmup-seconds and load.duration-seconds.
+ */
+@Tag("benchmark")
+class MixedWorkloadBenchmarkUnitTest {
+
+    private static final int PATIENTS = Integer.getInteger("load.patients", 1000);
+    private static final int DOCTORS = Integer.getInteger("load.doctors", 100);
+    private static final int ROOMS = Integer.getInteger("load.rooms", 20);
+    private static final int APPOINTMENTS = Integer.getInteger("load.appointments", 10_000);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 64);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup-seconds", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration-seconds", 30);
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2023, 4, 24, 8, 0);
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+    private static final Pattern BOOKED_ID = Pattern.compile("\"id\":(\\d+)");
+    private static final long HIGHEST_LATENCY_MICROS = Duration.ofMinutes(1).toNanos() / 1000;
+
+    /** One kind of request, with its share of the mix and the statuses that count as served. */
+    enum Operation {
+        GET_APPOINTMENT("GET /api/appointments/{id}", 15, 200),
+        GET_DOCTOR("GET /api/doctors/{id}", 10, 200),
+        GET_PATIENT("GET /api/patients/{id}", 10, 200),
+        GET_ROOM("GET /api/rooms/{roomName}", 5, 200),
+        LIST_APPOINTMENTS("GET /api/appointments?limit=50", 15, 200),
+        LIST_DOCTORS("GET /api/doctors", 5, 200),
+        BOOK("POST /api/appointments", 25, 201, 406),
+        DELETE_APPOINTMENT("DELETE /api/appointments/{id}", 15, 200);
+
+        final String endpoint;
+        final int weight;
+        final int[] statuses;
+
+        Operation(String endpoint, int weight, int... statuses){
+            this.endpoint = endpoint;
+            this.weight = weight;
+            this.statuses = statuses;
+        }
+
+        boolean served(int status){
+            for (int expected : statuses){
+                if (expected == status){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        static Operation pick(int roll){
+            for (Operation operation : values()){
+                roll -= operation.weight;
+                if (roll < 0){
+                    return operation;
+                }
+            }
+            throw new IllegalStateException("Weights must add up to 100");
+        }
+    }
+
+    static class Results {
+        final Map<Operation, Histogram> latencies = new LinkedHashMap<>();
+        final Map<Operation, AtomicLong> failures = new LinkedHashMap<>();
+
+        Results(){
+            for (Operation operation : Operation.values()){
+                latencies.put(operation, new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3));
+                failures.put(operation, new AtomicLong());
+            }
+        }
+
+        long totalFailures(){
+            return failures.values().stream().mapToLong(AtomicLong::get).sum();
+        }
+    }
+
+    static class Workload {
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final String baseUrl;
+        final long[] appointmentIds;
+        final long[] doctorIds;
+        final long[] patientIds;
+        final Queue<Long> booked = new ConcurrentLinkedQueue<>();
+
+        Workload(String baseUrl, long[] appointmentIds, long[] doctorIds, long[] patientIds){
+            this.baseUrl = baseUrl;
+            this.appointmentIds = appointmentIds;
+            this.doctorIds = doctorIds;
+            this.patientIds = patientIds;
+        }
+
+        private static long any(long[] ids){
+            return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        }
+
+        private HttpRequest request(Operation operation){
+            switch (operation){
+                case GET_APPOINTMENT:
+                    return get("/api/appointments/" + any(appointmentIds));
+                case GET_DOCTOR:
+                    return get("/api/doctors/" + any(doctorIds));
+                case GET_PATIENT:
+                    return get("/api/patients/" + any(patientIds));
+                case GET_ROOM:
+                    return get("/api/rooms/Room" + ThreadLocalRandom.current().nextInt(ROOMS));
+                case LIST_APPOINTMENTS:
+                    return get("/api/appointments?limit=50");
+                case LIST_DOCTORS:
+                    return get("/api/doctors");
+                case BOOK:
+                    return book();
+                default:
+                    throw new IllegalArgumentException(operation.name());
+            }
+        }
+
+        private HttpRequest get(String path){
+            return HttpRequest.newBuilder(URI.create(baseUrl + path)).build();
+        }
+
+        /** A half hour after the seeded ones, some of which collide with each other. */
+        private HttpRequest book(){
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            LocalDateTime startsAt = BASE.plusMinutes(30L * (APPOINTMENTS / ROOMS + 1 + random.nextInt(10_000)));
+            String body = String.format(
+                "{\"patientId\":%d,\"doctorId\":%d,\"roomName\":\"Room%d\",\"startsAt\":\"%s\",\"finishesAt\":\"%s\"}",
+                any(patientIds), any(doctorIds), random.nextInt(ROOMS),
+                DATE_TIME.format(startsAt), DATE_TIME.format(startsAt.plusMinutes(30)));
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/appointments"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        }
+
+        /** Deletes only appointments booked by the workload, books one when there is none yet. */
+        void next(Results results) throws InterruptedException {
+            Operation operation = Operation.pick(ThreadLocalRandom.current().nextInt(100));
+            HttpRequest request;
+            if (operation == Operation.DELETE_APPOINTMENT){
+                Long id = booked.poll();
+                if (id == null){
+                    operation = Operation.BOOK;
+                    request = book();
+                } else {
+                    request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/appointments/" + id)).DELETE().build();
+                }
+            } else {
+                request = request(operation);
+            }
+
+            long started = System.nanoTime();
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                results.latencies.get(operation).recordValue(
+                    Math.min((System.nanoTime() - started) / 1000, HIGHEST_LATENCY_MICROS));
+                if (!operation.served(response.statusCode())){
+                    results.failures.get(operation).incrementAndGet();
+                } else if (response.statusCode() == 201){
+                    Matcher matcher = BOOKED_ID.matcher(response.body());
+                    if (matcher.find()){
+                        booked.add(Long.parseLong(matcher.group(1)));
+                    }
+                }
+            } catch (IOException e){
+                results.failures.get(operation).incrementAndGet();
+            }
+        }
+
+        Results run(int seconds) throws InterruptedException {
+            Results results = new Results();
+            long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()){
+                for (int i = 0; i < CLIENTS; i++){
+                    clients.execute(() -> {
+                        try {
+                            while (System.nanoTime() < deadline){
+                                next(results);
+                            }
+                        } catch (InterruptedException e){
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                }
+            }
+            return results;
+        }
+    }
+
+    /** Seeds through the repositories, participants are bound by reference so nothing cascades. */
+    private static Workload seed(ConfigurableApplicationContext context){
+        EntityManager entityManager = context.getBean(EntityManager.class);
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        long[] doctorIds = new long[DOCTORS];
+        long[] patientIds = new long[PATIENTS];
+        long[] appointmentIds = new long[APPOINTMENTS];
+        transaction.executeWithoutResult(status -> {
+            for (int i = 0; i < ROOMS; i++){
+                entityManager.persist(new Room("Room" + i));
+            }
+            for (int i = 0; i < DOCTORS; i++){
+                Doctor doctor = new Doctor("Perla", "Amalia" + i, 24, "p.amalia" + i + "@hospital.accwe");
+                entityManager.persist(doctor);
+                doctorIds[i] = doctor.getId();
+            }
+            for (int i = 0; i < PATIENTS; i++){
+                Patient patient = new Patient("Jose Luis", "Olaya" + i, 37, "j.olaya" + i + "@email.com");
+                entityManager.persist(patient);
+                patientIds[i] = patient.getId();
+            }
+        });
+
+        int chunk = 1000;
+        for (int from = 0; from < APPOINTMENTS; from += chunk){
+            int start = from;
+            transaction.executeWithoutResult(status -> {
+                for (int i = start; i < Math.min(start + chunk, APPOINTMENTS); i++){
+                    // Room i % ROOMS in half hour slot i / ROOMS, so rooms are never double booked
+                    LocalDateTime startsAt = BASE.plusMinutes(30L * (i / ROOMS));
+                    Appointment appointment = new Appointment(
+                        entityManager.getReference(Patient.class, patientIds[i % PATIENTS]),
+                        entityManager.getReference(Doctor.class, doctorIds[i % DOCTORS]),
+                        entityManager.getReference(Room.class, "Room" + (i % ROOMS)),
+                        startsAt, startsAt.plusMinutes(30));
+                    entityManager.persist(appointment);
+                    appointmentIds[i] = appointment.getId();
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+        context.getBean(AppointmentIndex.class).rebuild();
+
+        String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        return new Workload(baseUrl, appointmentIds, doctorIds, patientIds);
+    }
+
+    /** Returns how many requests were answered, served or not. */
+    private static long report(Results results, int seconds) throws IOException {
+        File directory = new File("target/load-test");
+        directory.mkdirs();
+
+        System.out.printf("%d clients, %d s, %d patients, %d doctors, %d rooms, %d appointments%n",
+            CLIENTS, seconds, PATIENTS, DOCTORS, ROOMS, APPOINTMENTS);
+        System.out.printf("%-32s %8s %8s %9s %9s %9s %9s %9s %7s%n",
+            "endpoint", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        long total = 0;
+        for (Operation operation : Operation.values()){
+            Histogram histogram = results.latencies.get(operation);
+            total += histogram.getTotalCount();
+            System.out.printf("%-32s %8d %8.0f %9.2f %9.2f %9.2f %9.2f %9.2f %7d%n",
+                operation.endpoint, histogram.getTotalCount(), histogram.getTotalCount() / (double) seconds,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0, results.failures.get(operation).get());
+
+            try (PrintStream out = new PrintStream(new File(directory, operation.name().toLowerCase() + ".hgrm"))){
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        System.out.printf("%-32s %8d %8.0f %54d%n", "total", total, total / (double) seconds, results.totalFailures());
+        return total;
+    }
+
+    @Test
+    void shouldServeMixedWorkload() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TechhubApplication.class)
+                .run("--server.port=0",
+                     "--spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=3000",
+                     "--spring.datasource.hikari.maximum-pool-size=" + Math.max(10, CLIENTS / 4),
+                     "--logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN")){
+            Workload workload = seed(context);
+            workload.run(WARMUP_SECONDS);
+
+            Results results = workload.run(DURATION_SECONDS);
+            // Errors are reported per endpoint rather than failing the run, finding them is the point
+            assertThat(report(results, DURATION_SECONDS)).isPositive();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entities.Doctor;
+import com.example.demo.repositories.DoctorRepository;
+
+/** A database whose doctors were numbered by the shared hibernate_sequence, before doctors_seq existed. */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:ids-existing;LOCK_TIMEOUT=3000;INIT=" +
+    "CREATE TABLE IF NOT EXISTS doctors(id BIGINT NOT NULL PRIMARY KEY, age INT NOT NULL, email VARCHAR(255), " +
+    "first_name VARCHAR(255), last_name VARCHAR(255), version BIGINT NOT NULL)\\\\;" +
+    "MERGE INTO doctors KEY(id) VALUES (120, 24, 'p.amalia@hospital.accwe', 'Perla', 'Amalia', 0)")
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PooledSequenceGeneratorJpaUnitTest {
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Test
+    void should_start_new_sequence_above_existing_ids(){
+        Doctor doctor = repoDoctors.save(new Doctor ("Miren", "Iniesta", 24, "m.iniesta@hospital.accwe"));
+
+        assertThat(doctor.getId()).isGreaterThan(120);
+        assertThat(repoDoctors.count()).isEqualTo(2);
+    }
+}
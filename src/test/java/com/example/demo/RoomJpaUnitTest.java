@@ -79,7 +79,7 @@ class RoomJpaUnitTest {
         entityManager.persist(room2);
         entityManager.persist(room3);
 
-        repository.deleteByRoomName(room2.getRoomName());
+        repository.delete(repository.findByRoomName(room2.getRoomName()).get());
 
         Iterable rooms = repository.findAll();
 
@@ -96,7 +96,7 @@ class RoomJpaUnitTest {
         entityManager.persist(room2);
         entityManager.persist(room3);
 
-        repository.deleteAll();
+        repository.deleteAllInBatch();
         assertThat(repository.findAll()).isEmpty();
     }
     
@@ -0,0 +1,18 @@
+package com.example.demo;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Most SQL statements the annotated test may run, counted by {@link StatementCounter}
+ * and checked by {@link StatementBudgetExtension}. @BeforeEach and @AfterEach methods
+ * are not counted.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+
+    int value();
+}
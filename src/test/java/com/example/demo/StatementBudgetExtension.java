@@ -0,0 +1,26 @@
+package com.example.demo;
+
+import java.util.List;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/** Fails tests annotated with {@link StatementBudget} that run more statements than their budget. */
+public class StatementBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context){
+        StatementCounter.reset();
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context){
+        StatementBudget budget = context.getRequiredTestMethod().getAnnotation(StatementBudget.class);
+        List<String> statements = StatementCounter.statements();
+        if (budget != null && statements.size() > budget.value()){
+            throw new AssertionError(String.format("%s ran %d SQL statements, its budget is %d:%n  %s",
+                context.getDisplayName(), statements.size(), budget.value(), String.join("\n  ", statements)));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Wraps the application's DataSource and records the SQL of every statement run through
+ * it, from any thread. Each row added to a JDBC batch counts as a statement of its own,
+ * so row by row deletes show up even when Hibernate batches them.
+ */
+@TestConfiguration
+public class StatementCounter {
+
+    private static final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+    static void reset(){
+        statements.clear();
+    }
+
+    static List<String> statements(){
+        synchronized (statements){
+            return new ArrayList<>(statements);
+        }
+    }
+
+    @Bean
+    static BeanPostProcessor statementCountingDataSource(){
+        return new BeanPostProcessor(){
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName){
+                return bean instanceof DataSource ? new CountingDataSource((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    static class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target){
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+
+        private static Connection counting(Connection connection){
+            return (Connection) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[]{ Connection.class },
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    switch (method.getName()){
+                        case "prepareStatement":
+                            return counting(result, PreparedStatement.class, (String) args[0]);
+                        case "prepareCall":
+                            return counting(result, CallableStatement.class, (String) args[0]);
+                        case "createStatement":
+                            return counting(result, Statement.class, null);
+                        default:
+                            return result;
+                    }
+                });
+        }
+
+        private static Object counting(Object statement, Class<?> type, String preparedSql){
+            return Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[]{ type },
+                (proxy, method, args) -> {
+                    switch (method.getName()){
+                        case "execute":
+                        case "executeQuery":
+                        case "executeUpdate":
+                        case "executeLargeUpdate":
+                        case "addBatch":
+                            statements.add(args != null && args.length > 0 && args[0] instanceof String
+                                ? (String) args[0] : preparedSql);
+                            break;
+                        default:
+                    }
+                    return invoke(statement, method, args);
+                });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e){
+                throw e.getTargetException();
+            }
+        }
+    }
+}
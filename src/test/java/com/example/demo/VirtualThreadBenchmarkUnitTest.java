@@ -0,0 +1,224 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Request latency and throughput on Tomcat's platform thread pool against virtual
+ * threads, with every SQL statement held up for DB_LATENCY_MS to stand in for a slow
+ * MySQL. Both runs use the same JDBC pool, no larger than the worker pool, as sized
+ * for production.
+ *
+ * mysql-connector-j 8.0 reads the socket inside synchronized blocks, which pins the
+ * virtual thread to its carrier. The delay is therefore taken inside a monitor too,
+ * so at most as many statements run at once as there are carriers. Pass
+ * -Dbenchmark.driver-pins=false to model a driver without the monitors. Run with
+ * -Pbenchmark, which also traces pinned threads.
+ */
+@Tag("benchmark")
+class VirtualThreadBenchmarkUnitTest {
+
+    private static final long DB_LATENCY_MS = 20;
+    private static final int WORKER_THREADS = 200;
+    private static final int POOL_SIZE = 100;
+    private static final int CONCURRENCY = 400;
+    private static final int WARMUP_REQUESTS = 200;
+    private static final int REQUESTS = 2_000;
+    private static final boolean DRIVER_PINS = Boolean.parseBoolean(System.getProperty("benchmark.driver-pins", "true"));
+
+    /** Holds up every statement execution while its pooled connection is checked out. */
+    @Configuration
+    static class SlowDatabase {
+
+        @Bean
+        static BeanPostProcessor slowDataSource(){
+            return new BeanPostProcessor(){
+                @Override
+                public Object postProcessBeforeInitialization(Object bean, String beanName){
+                    if (bean instanceof HikariDataSource){
+                        HikariDataSource hikari = (HikariDataSource) bean;
+                        JdbcDataSource h2 = new JdbcDataSource();
+                        h2.setURL(hikari.getJdbcUrl());
+                        h2.setUser(hikari.getUsername());
+                        h2.setPassword(hikari.getPassword());
+                        hikari.setDataSource(new DelayingDataSource(h2));
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    static class DelayingDataSource extends DelegatingDataSource {
+
+        DelayingDataSource(DataSource target){
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return delaying(super.getConnection());
+        }
+
+        // Hikari asks for connections with its credentials
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return delaying(super.getConnection(username, password));
+        }
+
+        private static Connection delaying(Connection connection){
+            return (Connection) Proxy.newProxyInstance(DelayingDataSource.class.getClassLoader(), new Class<?>[]{ Connection.class },
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return result instanceof Statement ? delaying((Statement) result) : result;
+                });
+        }
+
+        private static Object delaying(Statement statement){
+            Class<?>[] interfaces = statement.getClass().getInterfaces();
+            InvocationHandler handler = (proxy, method, args) -> {
+                if (method.getName().startsWith("execute")){
+                    if (DRIVER_PINS){
+                        synchronized (statement){
+                            Thread.sleep(DB_LATENCY_MS);
+                        }
+                    } else {
+                        Thread.sleep(DB_LATENCY_MS);
+                    }
+                }
+                return invoke(statement, method, args);
+            };
+            return Proxy.newProxyInstance(DelayingDataSource.class.getClassLoader(), interfaces, handler);
+        }
+
+        private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e){
+                throw e.getTargetException();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtualThreads){
+        String database = virtualThreads ? "virtual" : "platform";
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TechhubApplication.class, SlowDatabase.class)
+            .run("--server.port=0",
+                 "--spring.threads.virtual.enabled=" + virtualThreads,
+                 "--server.tomcat.threads.max=" + WORKER_THREADS,
+                 "--server.tomcat.accept-count=" + CONCURRENCY,
+                 "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                 "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                 "--spring.datasource.hikari.minimum-idle=" + POOL_SIZE,
+                 "--spring.datasource.hikari.connection-timeout=60000");
+
+        DoctorRepository doctors = context.getBean(DoctorRepository.class);
+        PatientRepository patients = context.getBean(PatientRepository.class);
+        List<Doctor> newDoctors = new ArrayList<>();
+        List<Patient> newPatients = new ArrayList<>();
+        for (int i = 0; i < 10; i++){
+            newDoctors.add(new Doctor("Perla", "Amalia" + i, 24, "p.amalia" + i + "@hospital.accwe"));
+            newPatients.add(new Patient("Jose Luis", "Olaya" + i, 37, "j.olaya" + i + "@email.com"));
+        }
+        doctors.saveAll(newDoctors);
+        patients.saveAll(newPatients);
+        return context;
+    }
+
+    /** Keeps CONCURRENCY requests in flight, half of them listing doctors and half listing patients. */
+    private static long[] run(HttpClient client, String baseUrl, int requests, AtomicInteger failures) throws InterruptedException {
+        long[] latencies = new long[requests];
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()){
+            for (int i = 0; i < requests; i++){
+                int request = i;
+                String path = ThreadLocalRandom.current().nextBoolean() ? "/api/doctors" : "/api/patients";
+                inFlight.acquire();
+                callers.execute(() -> {
+                    try {
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = client.send(
+                            HttpRequest.newBuilder(URI.create(baseUrl + path)).build(),
+                            HttpResponse.BodyHandlers.discarding());
+                        latencies[request] = System.nanoTime() - start;
+                        if (response.statusCode() != 200){
+                            failures.incrementAndGet();
+                        }
+                    } catch (Exception e){
+                        failures.incrementAndGet();
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        return latencies;
+    }
+
+    private static void measure(boolean virtualThreads) throws InterruptedException {
+        String label = virtualThreads ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = start(virtualThreads)){
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+            AtomicInteger failures = new AtomicInteger();
+            run(client, baseUrl, WARMUP_REQUESTS, failures);
+
+            long started = System.nanoTime();
+            long[] latencies = run(client, baseUrl, REQUESTS, failures);
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            Arrays.sort(latencies);
+            System.out.printf("%-8s workers=%d pool=%d in-flight=%d db=%dms pins=%b: %6.0f req/s  p50=%7.2f ms  p99=%7.2f ms  max=%7.2f ms%n",
+                label, WORKER_THREADS, POOL_SIZE, CONCURRENCY, DB_LATENCY_MS, DRIVER_PINS, REQUESTS / seconds,
+                millis(latencies, 0.50), millis(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+            assertThat(failures.get()).isZero();
+        }
+    }
+
+    private static double millis(long[] sorted, double percentile){
+        return sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1e6;
+    }
+
+    @Test
+    void shouldServeRequestsOnPlatformAndVirtualThreads() throws InterruptedException {
+        measure(false);
+        measure(true);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadConfigurationUnitTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    private static boolean runsOnVirtualThread(Executor executor) throws Exception {
+        return CompletableFuture.supplyAsync(() -> Thread.currentThread().isVirtual(), executor).get();
+    }
+
+    @Test
+    void shouldServeRequestsOnVirtualThreads() throws Exception {
+        TomcatWebServer server = (TomcatWebServer) context.getWebServer();
+        Executor executor = server.getTomcat().getConnector().getProtocolHandler().getExecutor();
+
+        assertThat(runsOnVirtualThread(executor)).isTrue();
+    }
+
+    @Test
+    void shouldRunStreamedResponsesOnVirtualThreads() throws Exception {
+        Executor executor = context.getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, Executor.class);
+
+        assertThat(runsOnVirtualThread(executor)).isTrue();
+    }
+}